@@ -0,0 +1,43 @@
+package searchengine.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Сохранённые страницы из src/main/resources/corpus, на которых гоняются бенчмарки.
+ */
+public final class Corpus {
+
+    public static final String RU_LIBRARY_NEWS = "ru-library-news";
+    public static final String RU_SHOP_CATALOG = "ru-shop-catalog";
+    public static final String EN_BLOG_POST = "en-blog-post";
+    public static final String EN_DOCS_PAGE = "en-docs-page";
+
+    private Corpus() {
+    }
+
+    public static String html(String name) {
+        try (InputStream in = Corpus.class.getResourceAsStream("/corpus/" + name + ".html")) {
+            if (in == null) {
+                throw new IllegalArgumentException("Нет страницы в корпусе: " + name);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Страница, склеенная сама с собой до нужного размера, чтобы приблизиться к реальным 100 КБ.
+     */
+    public static String html(String name, int minLength) {
+        String page = html(name);
+        StringBuilder sb = new StringBuilder(minLength + page.length());
+        while (sb.length() < minLength) {
+            sb.append(page);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,40 @@
+package searchengine.benchmarks;
+
+import org.jsoup.Jsoup;
+import org.openjdk.jmh.annotations.*;
+import searchengine.TextProcessor;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HtmlCleaningBenchmark {
+
+    @Param({Corpus.RU_LIBRARY_NEWS, Corpus.RU_SHOP_CATALOG, Corpus.EN_BLOG_POST, Corpus.EN_DOCS_PAGE})
+    public String page;
+
+    private TextProcessor textProcessor;
+    private String html;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        textProcessor = new TextProcessor(Set.of("СОЮЗ", "МЕЖД", "ПРЕДЛ", "ЧАСТ"));
+        html = Corpus.html(page, 100_000);
+    }
+
+    @Benchmark
+    public String removeHtmlTags() {
+        return textProcessor.removeHtmlTags(html);
+    }
+
+    // Для сравнения: извлечение текста через jsoup, как в краулере
+    @Benchmark
+    public String jsoupText() {
+        return Jsoup.parse(html).text();
+    }
+}
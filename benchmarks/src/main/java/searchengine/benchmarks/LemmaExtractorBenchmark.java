@@ -0,0 +1,59 @@
+package searchengine.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import searchengine.LemmaExtractor;
+import searchengine.TextProcessor;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LemmaExtractorBenchmark {
+
+    private static final Set<String> EXCLUDED = Set.of("СОЮЗ", "МЕЖД", "ПРЕДЛ", "ЧАСТ");
+
+    // Только русские страницы: normalizeText выбрасывает латиницу, и английский текст дал бы пустой цикл
+    @Param({Corpus.RU_LIBRARY_NEWS, Corpus.RU_SHOP_CATALOG})
+    public String page;
+
+    private LemmaExtractor extractor;
+    private String text;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        extractor = new LemmaExtractor(EXCLUDED);
+        text = new TextProcessor(EXCLUDED).removeHtmlTags(Corpus.html(page, 100_000));
+    }
+
+    // getLemmaPositions — то, что вызывает индексация (TextProcessor.lemmatize)
+    @Benchmark
+    public Map<String, int[]> warmCache() {
+        return extractor.getLemmaPositions(text);
+    }
+
+    @State(Scope.Thread)
+    public static class ColdCache {
+        LemmaExtractor extractor;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            extractor = new LemmaExtractor(EXCLUDED);
+        }
+
+        @Setup(Level.Invocation)
+        public void clear() {
+            extractor.clearCache();
+        }
+    }
+
+    @Benchmark
+    public Map<String, int[]> coldCache(ColdCache state) {
+        return state.extractor.getLemmaPositions(text);
+    }
+}
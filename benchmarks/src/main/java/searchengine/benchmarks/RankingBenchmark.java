@@ -0,0 +1,86 @@
+package searchengine.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import searchengine.services.search.PostingList;
+import searchengine.services.search.TopKCollector;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RankingBenchmark {
+
+    private static final int PAGES = 1_000_000;
+
+    // Длина самого частого списка; остальные в 10 и 1000 раз короче
+    @Param({"10000", "100000"})
+    public int postings;
+
+    @Param({"10", "100"})
+    public int k;
+
+    private PostingList frequent;
+    private PostingList medium;
+    private PostingList rare;
+    private int[] frequentIds;
+    private int[] mediumIds;
+    private int[] rareIds;
+    private int[] candidates;
+    private float[] scores;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        frequent = randomList(random, postings);
+        medium = randomList(random, postings / 10);
+        rare = randomList(random, Math.max(1, postings / 1000));
+        frequentIds = frequent.pageIds();
+        mediumIds = medium.pageIds();
+        rareIds = rare.pageIds();
+        candidates = frequentIds;
+        scores = new float[candidates.length];
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] = random.nextFloat() * 100;
+        }
+    }
+
+    @Benchmark
+    public int[] intersectMerge() {
+        return PostingList.intersect(frequentIds, mediumIds);
+    }
+
+    @Benchmark
+    public int[] intersectGallop() {
+        return PostingList.intersect(frequentIds, rareIds);
+    }
+
+    @Benchmark
+    public int[] intersectAll() {
+        return PostingList.intersectAll(List.of(frequent, medium, rare));
+    }
+
+    @Benchmark
+    public void topK(Blackhole blackhole) {
+        TopKCollector collector = new TopKCollector(k);
+        for (int i = 0; i < candidates.length; i++) {
+            collector.collect(candidates[i], scores[i]);
+        }
+        blackhole.consume(collector.results());
+    }
+
+    private static PostingList randomList(Random random, int size) {
+        int[] ids = random.ints(0, PAGES).distinct().limit(size).toArray();
+        float[] ranks = new float[ids.length];
+        for (int i = 0; i < ranks.length; i++) {
+            ranks[i] = 1 + random.nextInt(20);
+        }
+        return PostingList.of(ids, ranks);
+    }
+}
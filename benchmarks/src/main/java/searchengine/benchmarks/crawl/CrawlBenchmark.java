@@ -0,0 +1,115 @@
+package searchengine.benchmarks.crawl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import searchengine.Application;
+import searchengine.controllers.DefaultController;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Прогоняет полный startIndexing против {@link SyntheticSite} и печатает
+ * страницы/сек, записи в БД/сек и пиковый объём кучи.
+ * <p>
+ * Нужна доступная MySQL из application.yaml (или переопределённая через
+ * --spring.datasource.*). Параметры сайта передаются как key=value:
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar searchengine.benchmarks.crawl.CrawlBenchmark \
+ *     pages=2000 fanOut=8 pageSize=100000 latencyMs=20 errorRate=0.01
+ * </pre>
+ * Остальные аргументы передаются Spring Boot как есть.
+ */
+public class CrawlBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        List<String> springArgs = new ArrayList<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (!arg.startsWith("--") && eq > 0) {
+                options.put(arg.substring(0, eq), arg.substring(eq + 1));
+            } else {
+                springArgs.add(arg);
+            }
+        }
+        int pages = Integer.parseInt(options.getOrDefault("pages", "1000"));
+        int fanOut = Integer.parseInt(options.getOrDefault("fanOut", "8"));
+        int pageSize = Integer.parseInt(options.getOrDefault("pageSize", "20000"));
+        int latencyMs = Integer.parseInt(options.getOrDefault("latencyMs", "10"));
+        double errorRate = Double.parseDouble(options.getOrDefault("errorRate", "0"));
+
+        try (SyntheticSite site = new SyntheticSite(pages, fanOut, pageSize, latencyMs, errorRate).start()) {
+            springArgs.add("--indexing-settings.sites[0].url=" + site.rootUrl());
+            springArgs.add("--indexing-settings.sites[0].name=Synthetic");
+            springArgs.add("--crawler-settings.min-delay-ms=0");
+            springArgs.add("--crawler-settings.max-delay-ms=0");
+            springArgs.add("--spring.jpa.show-sql=false");
+
+            try (ConfigurableApplicationContext context =
+                         SpringApplication.run(Application.class, springArgs.toArray(String[]::new))) {
+                MeterRegistry registry = context.getBean(MeterRegistry.class);
+                DefaultController controller = context.getBean(DefaultController.class);
+
+                HeapSampler heap = new HeapSampler();
+                double rowsBefore = writtenRows(registry);
+                double pagesBefore = crawledPages(registry);
+                long start = System.nanoTime();
+                Object result = controller.startIndexing(false).getBody();
+                double seconds = (System.nanoTime() - start) / 1e9;
+                long peakHeap = heap.stop();
+
+                double crawled = crawledPages(registry) - pagesBefore;
+                double rows = writtenRows(registry) - rowsBefore;
+                System.out.printf("""
+                        Результат startIndexing: %s
+                        Сайт: %d страниц, fan-out %d, размер страницы %d, задержка %d мс, ошибки %.2f%%
+                        Запросов к сайту: %d (ошибок %d)
+                        Время: %.1f с
+                        Страниц: %.0f (%.1f стр/с)
+                        Записей в БД: %.0f (%.1f записей/с)
+                        Пиковый объём кучи: %.1f МБ
+                        """,
+                        result, pages, fanOut, pageSize, latencyMs, errorRate * 100,
+                        site.getRequests(), site.getErrors(),
+                        seconds, crawled, crawled / seconds, rows, rows / seconds,
+                        peakHeap / (1024.0 * 1024.0));
+            }
+        }
+    }
+
+    private static double crawledPages(MeterRegistry registry) {
+        Counter counter = registry.find("crawler.pages").counter();
+        return counter != null ? counter.count() : 0;
+    }
+
+    private static double writtenRows(MeterRegistry registry) {
+        return registry.find("persistence.rows").counters().stream().mapToDouble(Counter::count).sum();
+    }
+
+    private static class HeapSampler {
+        private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        private final AtomicLong peak = new AtomicLong();
+        private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+        HeapSampler() {
+            scheduler.scheduleAtFixedRate(() -> peak.accumulateAndGet(
+                    memory.getHeapMemoryUsage().getUsed(), Math::max), 0, 50, TimeUnit.MILLISECONDS);
+        }
+
+        long stop() {
+            scheduler.shutdownNow();
+            return Math.max(peak.get(), memory.getHeapMemoryUsage().getUsed());
+        }
+    }
+}
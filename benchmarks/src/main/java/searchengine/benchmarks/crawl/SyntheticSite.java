@@ -0,0 +1,142 @@
+package searchengine.benchmarks.crawl;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Локальный сайт-заглушка для замеров краулера без обращения к реальным сайтам.
+ * Страница n ссылается на страницы n * fanOut + 1 .. n * fanOut + fanOut, поэтому все
+ * pageCount страниц достижимы с главной, плюс одна обратная ссылка для циклов.
+ * Содержимое страниц детерминировано и зависит только от номера страницы.
+ */
+public class SyntheticSite implements AutoCloseable {
+
+    private static final String[] WORDS = {
+            "библиотека", "книга", "читатель", "выставка", "лекция", "город", "история", "музыка",
+            "театр", "спектакль", "новость", "событие", "журнал", "автор", "поэт", "картина",
+            "художник", "галерея", "экскурсия", "музей", "архив", "карта", "телефон", "магазин",
+            "доставка", "покупатель", "товар", "цена", "гарантия", "экран", "радио", "эфир"
+    };
+
+    private final int pageCount;
+    private final int fanOut;
+    private final int pageSize;
+    private final int latencyMs;
+    private final double errorRate;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    public SyntheticSite(int pageCount, int fanOut, int pageSize, int latencyMs, double errorRate) throws IOException {
+        this.pageCount = pageCount;
+        this.fanOut = fanOut;
+        this.pageSize = pageSize;
+        this.latencyMs = latencyMs;
+        this.errorRate = errorRate;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.server.createContext("/", this::handle);
+        this.server.setExecutor(executor);
+    }
+
+    public SyntheticSite start() {
+        server.start();
+        return this;
+    }
+
+    public String rootUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+    }
+
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.increment();
+        try (exchange) {
+            int page = parsePage(exchange.getRequestURI().getPath());
+            if (page < 0 || page >= pageCount) {
+                respond(exchange, 404, "<html><body>Not found</body></html>");
+                return;
+            }
+            if (latencyMs > 0) {
+                Thread.sleep(ThreadLocalRandom.current().nextInt(latencyMs / 2, latencyMs * 3 / 2 + 1));
+            }
+            if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+                errors.increment();
+                respond(exchange, 500, "<html><body>Internal error</body></html>");
+                return;
+            }
+            respond(exchange, 200, render(page));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static int parsePage(String path) {
+        if (path.equals("/")) {
+            return 0;
+        }
+        if (!path.startsWith("/page/")) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(path.substring("/page/".length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private String render(int page) {
+        Random random = new Random(page);
+        StringBuilder html = new StringBuilder(pageSize + 512);
+        html.append("<!DOCTYPE html><html><head><meta charset=\"UTF-8\"><title>Страница ")
+                .append(page).append("</title></head><body><nav>");
+        for (int i = 1; i <= fanOut; i++) {
+            int child = page * fanOut + i;
+            if (child < pageCount) {
+                html.append("<a href=\"/page/").append(child).append("\">Раздел ").append(child).append("</a> ");
+            }
+        }
+        html.append("<a href=\"/page/").append(random.nextInt(pageCount)).append("\">Случайная</a> ");
+        html.append("<a href=\"/\">Главная</a></nav><main><p>");
+        while (html.length() < pageSize) {
+            html.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+            if (random.nextInt(40) == 0) {
+                html.append("</p><p>");
+            }
+        }
+        html.append("</p></main></body></html>");
+        return html.toString();
+    }
+
+    private static void respond(HttpExchange exchange, int code, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/html; charset=UTF-8");
+        exchange.sendResponseHeaders(code, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -1,5 +1,7 @@
 package searchengine;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
 import org.apache.lucene.morphology.LuceneMorphology;
 import org.apache.lucene.morphology.russian.RussianLuceneMorphology;
 
@@ -14,6 +16,9 @@ public class LemmaExtractor {
     private final LuceneMorphology luceneMorph;
     private final Set<String> excludedPosTags;
     private final Map<String, List<String>> lemmaCache = new ConcurrentHashMap<>();
+    // Глобальный реестр Micrometer: в Spring Boot к нему подключён основной MeterRegistry
+    private final Counter cacheHits = Metrics.counter("lemmatizer.cache", "result", "hit");
+    private final Counter cacheMisses = Metrics.counter("lemmatizer.cache", "result", "miss");
 
     public LemmaExtractor(Set<String> excludedPosTags) throws Exception {
         this.luceneMorph = new RussianLuceneMorphology();
@@ -21,6 +26,10 @@ public class LemmaExtractor {
     }
 
     public Map<String, Integer> getLemmas(String text) {
+        return getLemmas(text, true);
+    }
+
+    public Map<String, Integer> getLemmas(String text, boolean parallel) {
         if (isEmpty(text)) {
             logger.warning("Входной текст пуст или null");
             return Collections.emptyMap();
@@ -29,14 +38,84 @@ public class LemmaExtractor {
         Map<String, Integer> lemmasCount = new ConcurrentHashMap<>();
         String[] words = normalizeText(text).split("\\s+");
 
-        Arrays.stream(words)
-                .parallel()
-                .filter(word -> !word.isEmpty())
+        var stream = Arrays.stream(words);
+        if (parallel) {
+            stream = stream.parallel();
+        }
+        stream.filter(word -> !word.isEmpty())
                 .forEach(word -> processWord(word, lemmasCount));
 
         return lemmasCount;
     }
 
+    /**
+     * Леммы каждого слова текста по порядку; для служебных слов список пуст.
+     * Номер слова в результате — его позиция в позиционном индексе.
+     */
+    public List<List<String>> getTokenLemmas(String text) {
+        if (isEmpty(text)) {
+            return Collections.emptyList();
+        }
+        String normalized = normalizeText(text);
+        if (normalized.isEmpty()) {
+            return Collections.emptyList();
+        }
+        String[] words = normalized.split("\\s+");
+        List<List<String>> tokens = new ArrayList<>(words.length);
+        for (String word : words) {
+            tokens.add(lemmasOf(word));
+        }
+        return tokens;
+    }
+
+    /**
+     * Леммы каждого слова из words, разобранных одним вызовом {@link #getTokenLemmas}
+     * по всему тексту. Слово может дать несколько токенов («северо-запад») или ни
+     * одного («2024»); его леммы — все леммы его токенов.
+     */
+    public List<List<String>> getWordLemmas(String[] words) {
+        List<List<String>> tokens = getTokenLemmas(String.join(" ", words));
+        List<List<String>> result = new ArrayList<>(words.length);
+        int token = 0;
+        for (String word : words) {
+            int count = tokenCount(word);
+            if (count == 1) {
+                result.add(tokens.get(token));
+            } else {
+                List<String> lemmas = new ArrayList<>();
+                for (int i = token; i < token + count; i++) {
+                    lemmas.addAll(tokens.get(i));
+                }
+                result.add(lemmas);
+            }
+            token += count;
+        }
+        return result;
+    }
+
+    /**
+     * Позиции каждой леммы в тексте по возрастанию; длина массива — число вхождений.
+     */
+    public Map<String, int[]> getLemmaPositions(String text) {
+        List<List<String>> tokens = getTokenLemmas(text);
+        Map<String, Integer> counts = new HashMap<>();
+        tokens.forEach(lemmas -> lemmas.forEach(lemma -> counts.merge(lemma, 1, Integer::sum)));
+
+        Map<String, int[]> positions = new HashMap<>(counts.size() * 2);
+        counts.forEach((lemma, count) -> positions.put(lemma, new int[count]));
+        Map<String, Integer> filled = new HashMap<>(counts.size() * 2);
+        for (int i = 0; i < tokens.size(); i++) {
+            for (String lemma : tokens.get(i)) {
+                positions.get(lemma)[filled.merge(lemma, 1, Integer::sum) - 1] = i;
+            }
+        }
+        return positions;
+    }
+
+    public void clearCache() {
+        lemmaCache.clear();
+    }
+
     private void processWord(String word, Map<String, Integer> lemmasCount) {
         try {
             List<String> baseForms = getLemma(word);
@@ -46,7 +125,22 @@ public class LemmaExtractor {
         }
     }
 
+    private List<String> lemmasOf(String word) {
+        try {
+            return getLemma(word);
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Ошибка при обработке слова: " + word, e);
+            return Collections.emptyList();
+        }
+    }
+
     private List<String> getLemma(String word) {
+        List<String> cached = lemmaCache.get(word);
+        if (cached != null) {
+            cacheHits.increment();
+            return cached;
+        }
+        cacheMisses.increment();
         return lemmaCache.computeIfAbsent(word, w -> {
             try {
                 List<String> morphInfo = luceneMorph.getMorphInfo(w);
@@ -68,6 +162,24 @@ public class LemmaExtractor {
         return text.toLowerCase().replaceAll("[^а-яА-Я\\s]", " ").trim();
     }
 
+    /**
+     * Сколько токенов даст слово без пробелов после {@link #normalizeText}:
+     * по одному на каждую непрерывную серию русских букв.
+     */
+    private static int tokenCount(String word) {
+        int count = 0;
+        boolean inLetters = false;
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            boolean letter = (c >= 'а' && c <= 'я') || (c >= 'А' && c <= 'Я');
+            if (letter && !inLetters) {
+                count++;
+            }
+            inLetters = letter;
+        }
+        return count;
+    }
+
     private boolean isEmpty(String str) {
         return str == null || str.trim().isEmpty();
     }
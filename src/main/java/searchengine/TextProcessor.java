@@ -1,19 +1,42 @@
 package searchengine;
 
+import org.jsoup.Jsoup;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Component;
+import searchengine.config.ContentStorageSettings;
+import searchengine.model.ContentCodec;
+import searchengine.services.IndexBatchWriter;
+import searchengine.services.IndexingGuard;
+import searchengine.services.SiteStatisticsRegistry;
 
 import javax.net.ssl.*;
 import java.security.cert.X509Certificate;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.net.HttpURLConnection;
+import java.net.Socket;
 import java.net.URI;
-import java.net.URL;
 import java.net.URISyntaxException;
-import java.sql.Connection;
-import java.sql.DriverManager;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.Charset;
 import java.sql.PreparedStatement;
-import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -21,38 +44,76 @@ import java.util.logging.Logger;
 public class TextProcessor {
 
     private static final Logger logger = Logger.getLogger(TextProcessor.class.getName());
+    private static final String USER_AGENT = "CustomSearchBot";
+    // Предел на всю загрузку, включая тело: таймаут HttpRequest ограничивает только ожидание заголовков
+    private static final long PAGE_TIMEOUT_MS = 30_000;
     private final LemmaExtractor lemmaExtractor;
+    private final HttpClient httpClient;
 
-    // URL для подключения к базе данных
-    private static final String DB_URL = "jdbc:mysql://localhost:3306/search_engine";
-    private static final String DB_USER = "root";
-    private static final String DB_PASSWORD = "asuzncmi666";
+    // Вне Spring-контекста (main, бенчмарки) зависимости не внедряются, доступна только обработка текста
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private IndexBatchWriter indexBatchWriter;
+
+    @Autowired
+    private ContentStorageSettings contentStorageSettings;
+
+    @Autowired
+    private SiteStatisticsRegistry statisticsRegistry;
+
+    @Autowired
+    private IndexingGuard indexingGuard;
+
+    @Autowired
+    public TextProcessor() throws Exception {
+        this(null); // набор исключаемых частей речи по умолчанию
+    }
 
     public TextProcessor(Set<String> excludedPosTags) throws Exception {
         this.lemmaExtractor = new LemmaExtractor(excludedPosTags);
-        disableCertificateValidation();
+        // NORMAL — не больше пяти перенаправлений подряд (jdk.httpclient.redirects.retrylimit)
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(Duration.ofSeconds(10));
+        SSLContext trustAll = trustAllCertificates();
+        if (trustAll != null) {
+            builder.sslContext(trustAll);
+        }
+        this.httpClient = builder.build();
     }
 
-    private void disableCertificateValidation() {
+    private SSLContext trustAllCertificates() {
         try {
+            // X509ExtendedTrustManager: обычный X509TrustManager JDK оборачивает
+            // и всё равно сверяет имя хоста, а HttpClient не даёт задать HostnameVerifier
             TrustManager[] trustAllCerts = new TrustManager[]{
-                    new X509TrustManager() {
+                    new X509ExtendedTrustManager() {
                         public X509Certificate[] getAcceptedIssuers() {
-                            return null;
+                            return new X509Certificate[0];
                         }
                         public void checkClientTrusted(X509Certificate[] certs, String authType) {
                         }
                         public void checkServerTrusted(X509Certificate[] certs, String authType) {
                         }
+                        public void checkClientTrusted(X509Certificate[] certs, String authType, Socket socket) {
+                        }
+                        public void checkServerTrusted(X509Certificate[] certs, String authType, Socket socket) {
+                        }
+                        public void checkClientTrusted(X509Certificate[] certs, String authType, SSLEngine engine) {
+                        }
+                        public void checkServerTrusted(X509Certificate[] certs, String authType, SSLEngine engine) {
+                        }
                     }
             };
 
-            SSLContext sc = SSLContext.getInstance("SSL");
+            SSLContext sc = SSLContext.getInstance("TLS");
             sc.init(null, trustAllCerts, new java.security.SecureRandom());
-            HttpsURLConnection.setDefaultSSLSocketFactory(sc.getSocketFactory());
-            HttpsURLConnection.setDefaultHostnameVerifier((hostname, session) -> true);
+            return sc;
         } catch (Exception e) {
             logger.log(Level.SEVERE, "Ошибка при игнорировании проверки сертификатов", e);
+            return null;
         }
     }
 
@@ -81,69 +142,189 @@ public class TextProcessor {
             return response;
         }
 
+        // Загрузка снимка очищает таблицы: страница, записанная в это время, сослалась бы на удалённый сайт
+        if (!indexingGuard.tryAcquirePageWrite()) {
+            response.put("result", false);
+            response.put("error", indexingGuard.getActivity() + " уже запущена, индексация страницы невозможна");
+            return response;
+        }
         try {
-            String pageContent = fetchPageContent(url);
-            String cleanedContent = removeHtmlTags(pageContent); // Очистка HTML-тегов
-            Map<String, Integer> lemmasCount = lemmaExtractor.getLemmas(cleanedContent); // Лемматизация очищенного текста
-
-            // Сохранение лемм в базу данных
-            saveLemmasToDatabase(lemmasCount, siteId);
+            // Пакет с этой страницей мог записать и упасть другой поток: его ошибку узнаём через onFailure
+            AtomicReference<DataAccessException> writeFailure = new AtomicReference<>();
+            Map<String, int[]> lemmaPositions = preparePage(url, siteId, writeFailure::set);
+            indexBatchWriter.flush();
+            if (writeFailure.get() != null) {
+                throw writeFailure.get();
+            }
 
+            Map<String, Integer> lemmasCount = new HashMap<>();
+            lemmaPositions.forEach((lemma, positions) -> lemmasCount.put(lemma, positions.length));
             response.put("result", true);
             response.put("lemmasCount", lemmasCount);
         } catch (IOException e) {
             logger.log(Level.SEVERE, "Ошибка при загрузке содержимого страницы: " + url, e);
             response.put("result", false);
             response.put("error", "Не удалось загрузить содержимое страницы");
-        } catch (SQLException e) {
+        } catch (IllegalArgumentException e) {
+            response.put("result", false);
+            response.put("error", e.getMessage());
+        } catch (DataAccessException e) {
             logger.log(Level.SEVERE, "Ошибка при сохранении лемм в базу данных для URL: " + url, e);
             response.put("result", false);
             response.put("error", "Ошибка при сохранении лемм в базу данных");
+        } finally {
+            indexingGuard.releasePageWrite();
         }
 
         return response;
     }
 
-    private void saveLemmasToDatabase(Map<String, Integer> lemmasCount, int siteId) throws SQLException {
-        try (Connection connection = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD)) {
-            String insertQuery = "INSERT INTO lemmas (lemma, lemma_count, site_id) VALUES (?, ?, ?)";
+    /**
+     * Загружает и сохраняет страницу, а её леммы ставит в общий буфер записи.
+     * Буфер не сбрасывается: при пакетной индексации это делает вызывающий код.
+     *
+     * @param onWriteFailure вызывается, если пакет с леммами страницы не удалось записать
+     */
+    public Map<String, int[]> preparePage(String url, int siteId, Consumer<DataAccessException> onWriteFailure)
+            throws IOException {
+        String siteUrl = jdbcTemplate.query("SELECT url FROM site WHERE id = ?",
+                rs -> rs.next() ? rs.getString(1) : null, siteId);
+        if (siteUrl == null) {
+            throw new IllegalArgumentException("Сайт с id " + siteId + " не найден");
+        }
+        if (!url.startsWith(siteUrl)) {
+            throw new IllegalArgumentException("Страница " + url + " не принадлежит сайту " + siteUrl);
+        }
+        statisticsRegistry.bindSiteId(siteId, siteUrl);
 
-            try (PreparedStatement preparedStatement = connection.prepareStatement(insertQuery)) {
-                for (Map.Entry<String, Integer> entry : lemmasCount.entrySet()) {
-                    preparedStatement.setString(1, entry.getKey());
-                    preparedStatement.setInt(2, entry.getValue());
-                    preparedStatement.setInt(3, siteId); // Указываем site_id
-                    preparedStatement.addBatch();
+        String pageContent = fetchPageContent(url);
+        String cleanedContent = removeHtmlTags(pageContent); // Очистка HTML-тегов
+        Map<String, int[]> lemmaPositions = lemmatize(cleanedContent);
+
+        int pageId = savePage(siteId, siteUrl, url, pageContent, cleanedContent);
+        indexBatchWriter.add(siteId, pageId, lemmaPositions, onWriteFailure);
+        return lemmaPositions;
+    }
+
+    /**
+     * Леммы текста с их позициями; страницы и так обрабатываются параллельно,
+     * поэтому сам текст разбирается в одном потоке.
+     */
+    public Map<String, int[]> lemmatize(String text) {
+        return lemmaExtractor.getLemmaPositions(text);
+    }
+
+    public List<List<String>> tokenLemmas(String text) {
+        return lemmaExtractor.getTokenLemmas(text);
+    }
+
+    public List<List<String>> wordLemmas(String[] words) {
+        return lemmaExtractor.getWordLemmas(words);
+    }
+
+    private int savePage(int siteId, String siteUrl, String url, String html, String text) {
+        String path = url.substring(siteUrl.length());
+        String pagePath = path.startsWith("/") ? path : "/" + path;
+        ContentCodec codec = contentStorageSettings.getCodec();
+        byte[] content = codec.encode(html);
+        byte[] encodedText = contentStorageSettings.isStoreText() ? codec.encode(text) : null;
+
+        Integer pageId = findPageId(siteId, pagePath);
+        if (pageId == null) {
+            KeyHolder keyHolder = new GeneratedKeyHolder();
+            try {
+                jdbcTemplate.update(connection -> {
+                    PreparedStatement statement = connection.prepareStatement(
+                            "INSERT INTO page (site_id, path, code, content, content_codec, text) VALUES (?, ?, ?, ?, ?, ?)",
+                            Statement.RETURN_GENERATED_KEYS);
+                    statement.setInt(1, siteId);
+                    statement.setString(2, pagePath);
+                    statement.setInt(3, HttpURLConnection.HTTP_OK);
+                    statement.setBytes(4, content);
+                    statement.setString(5, codec.name());
+                    statement.setBytes(6, encodedText);
+                    return statement;
+                }, keyHolder);
+                statisticsRegistry.pageAdded(siteUrl);
+                return keyHolder.getKey().intValue();
+            } catch (DuplicateKeyException e) {
+                // Ту же страницу только что сохранил параллельный пакет или обход сайта
+                pageId = findPageId(siteId, pagePath);
+                if (pageId == null) {
+                    throw e;
                 }
-                preparedStatement.executeBatch(); // Выполнение пакетной вставки
             }
-        } catch (SQLException e) { // Обработка SQLException
-            logger.log(Level.SEVERE, "Ошибка при сохранении лемм в базу данных", e);
-            throw e; // Перебрасываем исключение для дальнейшей обработки, если необходимо
         }
+
+        // Повторная индексация: старые леммы страницы больше не действительны
+        indexBatchWriter.removePage(siteId, pageId);
+        jdbcTemplate.update("UPDATE page SET code = ?, content = ?, content_codec = ?, text = ? WHERE id = ?",
+                HttpURLConnection.HTTP_OK, content, codec.name(), encodedText, pageId);
+        return pageId;
+    }
+
+    private Integer findPageId(int siteId, String pagePath) {
+        return jdbcTemplate.query("SELECT id FROM page WHERE site_id = ? AND path = ?",
+                rs -> rs.next() ? rs.getInt(1) : null, siteId, pagePath);
     }
 
+    /**
+     * Загрузка тем же путём, что и у краулера: HttpClient с таймаутами и ограниченным
+     * числом перенаправлений, а кодировку определяет jsoup по Content-Type, BOM
+     * или &lt;meta charset&gt;. Зависший сервер не держит вечно слот /api/indexPages.
+     */
     private String fetchPageContent(String urlString) throws IOException {
-        URL url = new URL(urlString);
-        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-        connection.setRequestMethod("GET");
-        connection.setInstanceFollowRedirects(false); // Отключаем автоматические перенаправления
-        connection.connect();
-
-        int responseCode = connection.getResponseCode();
-        if (responseCode == HttpURLConnection.HTTP_OK) {
-            // Если ответ 200 OK, считываем содержимое
-            try (Scanner scanner = new Scanner(connection.getInputStream())) {
-                scanner.useDelimiter("\\A");
-                return scanner.hasNext() ? scanner.next() : "";
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder(URI.create(urlString))
+                    .header("User-Agent", USER_AGENT)
+                    .timeout(Duration.ofMillis(PAGE_TIMEOUT_MS))
+                    .GET()
+                    .build();
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Некорректный адрес страницы: " + urlString, e);
+        }
+        CompletableFuture<HttpResponse<byte[]>> future = httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray());
+        HttpResponse<byte[]> response;
+        try {
+            response = future.get(PAGE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new IOException("Страница не загрузилась за " + PAGE_TIMEOUT_MS + " мс: " + urlString);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Загрузка страницы прервана: " + urlString);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+        }
+
+        if (response.statusCode() != HttpURLConnection.HTTP_OK) {
+            throw new IOException("Ошибка при получении страницы, код ответа: " + response.statusCode());
+        }
+        return Jsoup.parse(new ByteArrayInputStream(response.body()), charsetOf(response), urlString).html();
+    }
+
+    /**
+     * Кодировка из Content-Type, как у Jsoup.connect. Если её там нет,
+     * возвращается null, и jsoup ищет её по BOM и &lt;meta charset&gt;,
+     * а при неудаче берёт UTF-8: многие сайты на windows-1251 указывают
+     * кодировку только в разметке.
+     */
+    public static String charsetOf(HttpResponse<?> response) {
+        String contentType = response.headers().firstValue("Content-Type").orElse("");
+        for (String parameter : contentType.split(";")) {
+            String[] pair = parameter.trim().split("=", 2);
+            if (pair.length == 2 && pair[0].equalsIgnoreCase("charset")) {
+                String charset = pair[1].replace("\"", "").trim();
+                try {
+                    return Charset.isSupported(charset) ? charset : null;
+                } catch (IllegalArgumentException e) {
+                    return null; // недопустимое имя кодировки
+                }
             }
-        } else if (responseCode == HttpURLConnection.HTTP_MOVED_PERM || responseCode == HttpURLConnection.HTTP_MOVED_TEMP) {
-            // Если ответ 301 или 302, извлекаем новый URL из заголовка Location
-            String newUrl = connection.getHeaderField("Location");
-            return fetchPageContent(newUrl); // Рекурсивно вызываем метод с новым URL
-        } else {
-            throw new IOException("Ошибка при получении страницы, код ответа: " + responseCode);
         }
+        return null;
     }
 
     public boolean isValidUrl(String url) {
@@ -182,10 +363,7 @@ public class TextProcessor {
         try {
             TextProcessor processor = new TextProcessor(Set.of("СОЮЗ", "МЕЖД", "ПРЕДЛ", "ЧАСТ"));
 
-            // Пример siteId для индексации
-            int siteId = 1; // Убедитесь, что этот ID соответствует вашему сайту в базе данных
-
-            // Добавление новых URL для индексации
+            // Без Spring-контекста базы нет: печатаем только леммы страниц
             String[] testUrls = {
                     "https://volochek.life",
                     "http://radiomv.ru",
@@ -197,8 +375,8 @@ public class TextProcessor {
             };
 
             for (String url : testUrls) {
-                Map<String, Object> result = processor.indexPage(url, siteId);
-                System.out.println("Результат индексации для " + url + ": " + result);
+                Map<String, int[]> lemmas = processor.lemmatize(processor.removeHtmlTags(processor.fetchPageContent(url)));
+                System.out.println("Леммы для " + url + ": " + lemmas.keySet());
             }
 
         } catch (Exception e) {
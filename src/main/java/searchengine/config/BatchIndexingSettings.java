@@ -0,0 +1,21 @@
+package searchengine.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "batch-indexing")
+public class BatchIndexingSettings {
+    // Сколько строк index копить в общем буфере перед записью в базу
+    private int writeBatchSize = 5000;
+    // Сколько страниц одного хоста загружается одновременно
+    private int perHostConcurrency = 2;
+    // Максимум адресов в одном запросе /api/indexPages
+    private int maxUrls = 1000;
+    // Сколько хранить результаты завершённого задания
+    private int jobTtlMinutes = 60;
+}
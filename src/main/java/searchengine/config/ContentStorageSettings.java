@@ -0,0 +1,16 @@
+package searchengine.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import searchengine.model.ContentCodec;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "content-storage")
+public class ContentStorageSettings {
+    private ContentCodec codec = ContentCodec.LZ4;
+    private boolean storeText = true;
+}
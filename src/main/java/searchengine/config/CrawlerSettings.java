@@ -0,0 +1,27 @@
+package searchengine.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "crawler-settings")
+public class CrawlerSettings {
+    // Пауза между запросами к сайту выбирается случайно из [minDelayMs, maxDelayMs]
+    private int minDelayMs = 500;
+    private int maxDelayMs = 5000;
+    // Сколько stopIndexing ждёт завершения всех задач краулера
+    private int stopTimeoutMs = 10000;
+    // Каталог и период сохранения контрольных точек обхода
+    private String checkpointDir = "checkpoints";
+    private int checkpointIntervalMs = 30000;
+    private boolean respectRobotsTxt = true;
+    // Сколько самых свежих адресов из sitemap.xml ставить в очередь до обхода ссылок; 0 — не читать карты
+    private int maxSitemapUrls = 50000;
+    // Страница, чей SimHash отличается от уже проиндексированной не больше чем на столько бит,
+    // сохраняется без лемматизации; поиск гарантирован до 3 бит, -1 — не искать дубликаты
+    private int nearDuplicateDistance = 3;
+}
@@ -0,0 +1,27 @@
+package searchengine.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "search-settings")
+public class SearchSettings {
+    // Хранить позиции лемм в index: без них недоступны поиск фраз и учёт близости слов
+    private boolean positionalIndex = true;
+    // Длина сниппета в словах
+    private int snippetWords = 30;
+    // Период полной перестройки индекса подсказок по таблице lemma
+    private int suggestRebuildIntervalMs = 600000;
+    // Сколько ждать ответа шарда сайта при поиске, прежде чем отдать результат без него
+    private int shardTimeoutMs = 2000;
+    // Сколько шардов ищут одновременно на всех запросах
+    private int maxParallelShardSearches = 64;
+    // Период загрузки новых и перестройки устаревших шардов
+    private int shardRefreshIntervalMs = 30000;
+    // Как часто перестраивать шард сайта, обход которого ещё идёт
+    private int indexingShardRefreshIntervalMs = 300000;
+}
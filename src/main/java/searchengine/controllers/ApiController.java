@@ -3,11 +3,22 @@ package searchengine.controllers;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import searchengine.dto.indexing.BatchIndexRequest;
+import searchengine.dto.indexing.BatchIndexResponse;
+import searchengine.dto.search.SearchResponse;
+import searchengine.dto.search.SuggestResponse;
 import searchengine.dto.statistics.StatisticsResponse;
+import searchengine.services.BatchIndexingService;
+import searchengine.services.SearchService;
+import searchengine.services.SuggestionService;
+import searchengine.services.search.SearchMode;
 import searchengine.services.StatisticsService;
 import searchengine.TextProcessor;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 @RestController
@@ -16,10 +27,21 @@ public class ApiController {
 
     private final StatisticsService statisticsService;
     private final TextProcessor textProcessor;
+    private final BatchIndexingService batchIndexingService;
+    private final SearchService searchService;
+    private final SuggestionService suggestionService;
 
-    public ApiController(StatisticsService statisticsService, TextProcessor textProcessor) {
+    private static final int MAX_SEARCH_LIMIT = 100;
+    private static final int MAX_SUGGEST_LIMIT = 50;
+
+    public ApiController(StatisticsService statisticsService, TextProcessor textProcessor,
+                         BatchIndexingService batchIndexingService, SearchService searchService,
+                         SuggestionService suggestionService) {
         this.statisticsService = statisticsService;
         this.textProcessor = textProcessor;
+        this.batchIndexingService = batchIndexingService;
+        this.searchService = searchService;
+        this.suggestionService = suggestionService;
     }
 
     @GetMapping("/statistics")
@@ -27,6 +49,46 @@ public class ApiController {
         return ResponseEntity.ok(statisticsService.getStatistics());
     }
 
+    /**
+     * mode: rank — только сумма rank, proximity — с бонусом за близость слов,
+     * phrase — точная фраза (как и запрос в кавычках).
+     */
+    @GetMapping("/search")
+    public ResponseEntity<?> search(@RequestParam String query,
+                                    @RequestParam(required = false) String site,
+                                    @RequestParam(defaultValue = "0") int offset,
+                                    @RequestParam(defaultValue = "20") int limit,
+                                    @RequestParam(defaultValue = "proximity") String mode) {
+        try {
+            SearchMode searchMode = SearchMode.valueOf(mode.toUpperCase(Locale.ROOT));
+            SearchResponse response = searchService.search(query, site, Math.max(0, offset),
+                    Math.max(1, Math.min(limit, MAX_SEARCH_LIMIT)), searchMode);
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("result", false);
+            response.put("error", e.getMessage());
+            return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    @GetMapping("/suggest")
+    public ResponseEntity<?> suggest(@RequestParam String query,
+                                     @RequestParam(required = false) String site,
+                                     @RequestParam(defaultValue = "10") int limit) {
+        try {
+            SuggestResponse response = new SuggestResponse();
+            response.setResult(true);
+            response.setData(suggestionService.suggest(query, site, Math.max(1, Math.min(limit, MAX_SUGGEST_LIMIT))));
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("result", false);
+            response.put("error", e.getMessage());
+            return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
+        }
+    }
+
     @PostMapping("/indexPage")
     public ResponseEntity<Map<String, Object>> indexPage(@RequestParam String url, @RequestParam int siteId) {
         Map<String, Object> response = new HashMap<>();
@@ -48,4 +110,43 @@ public class ApiController {
             return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Ставит в очередь индексацию списка страниц и сразу возвращает jobId;
+     * ход и результат по каждой странице отдаёт GET /api/indexPages/{jobId}.
+     */
+    @PostMapping("/indexPages")
+    public ResponseEntity<Map<String, Object>> indexPages(@RequestBody BatchIndexRequest request) {
+        Map<String, Object> response = new HashMap<>();
+        List<String> urls = new ArrayList<>();
+        if (request.getUrls() != null) {
+            urls.addAll(request.getUrls());
+        }
+        if (request.getSite() != null && request.getPaths() != null) {
+            String site = request.getSite().endsWith("/")
+                    ? request.getSite().substring(0, request.getSite().length() - 1)
+                    : request.getSite();
+            request.getPaths().forEach(path -> urls.add(site + (path.startsWith("/") ? path : "/" + path)));
+        }
+
+        try {
+            response.put("result", true);
+            response.put("jobId", batchIndexingService.submit(urls, request.getSiteId()));
+            return new ResponseEntity<>(response, HttpStatus.ACCEPTED);
+        } catch (IllegalArgumentException e) {
+            response.put("result", false);
+            response.put("error", e.getMessage());
+            return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
+        } catch (IllegalStateException e) {
+            response.put("result", false);
+            response.put("error", e.getMessage());
+            return new ResponseEntity<>(response, HttpStatus.CONFLICT);
+        }
+    }
+
+    @GetMapping("/indexPages/{jobId}")
+    public ResponseEntity<BatchIndexResponse> indexPagesStatus(@PathVariable String jobId) {
+        BatchIndexResponse response = batchIndexingService.getJob(jobId);
+        return response != null ? ResponseEntity.ok(response) : ResponseEntity.notFound().build();
+    }
+}
@@ -1,58 +1,130 @@
 package searchengine.controllers;
 
+import io.micrometer.core.instrument.Timer;
+import org.jsoup.HttpStatusException;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.select.Elements;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.http.ResponseEntity;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import searchengine.TextProcessor;
+import searchengine.config.ContentStorageSettings;
+import searchengine.config.CrawlerSettings;
+import searchengine.config.Site;
+import searchengine.config.SitesList;
+import searchengine.model.ContentCodec;
 import searchengine.model.Status;
-
+import searchengine.services.CancellationToken;
+import searchengine.services.CrawlFrontier;
+import searchengine.services.FrontierCheckpointStore;
+import searchengine.services.IndexBatchWriter;
+import searchengine.services.IndexingGuard;
+import searchengine.services.IndexingMetrics;
+import searchengine.services.NearDuplicateIndex;
+import searchengine.services.RobotsRules;
+import searchengine.services.SimHash;
+import searchengine.services.SiteStatisticsRegistry;
+import searchengine.services.UrlDiscoveryService;
+
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 @RestController
 @RequestMapping("/api")
 public class DefaultController {
 
-    private final AtomicBoolean isIndexingInProgress = new AtomicBoolean(false);
     private final List<ForkJoinPool> activePools = Collections.synchronizedList(new ArrayList<>());
+    private volatile CancellationToken cancellationToken;
     private static final Logger logger = LoggerFactory.getLogger(DefaultController.class);
 
-    private final List<String> sites = List.of(
-            "https://example.com",
-            "https://example.org",
-            "https://example.net"
-    );
+    @Autowired
+    private SitesList sitesList;
 
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    @Autowired
+    private SiteStatisticsRegistry statisticsRegistry;
+
+    @Autowired
+    private IndexingMetrics metrics;
+
+    @Autowired
+    private ContentStorageSettings contentStorageSettings;
+
+    @Autowired
+    private CrawlerSettings crawlerSettings;
+
+    @Autowired
+    private FrontierCheckpointStore checkpointStore;
+
+    @Autowired
+    private UrlDiscoveryService discoveryService;
+
+    @Autowired
+    private TextProcessor textProcessor;
+
+    @Autowired
+    private IndexBatchWriter indexBatchWriter;
+
+    @Autowired
+    private NearDuplicateIndex nearDuplicates;
+
+    @Autowired
+    private IndexingGuard indexingGuard;
+
     private static final String USER_AGENT = "CustomSearchBot";
     private static final String REFERRER = "http://www.google.com";
+    private static final String STOPPED_BY_USER = "Индексация остановлена пользователем";
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
 
     @GetMapping("/startIndexing")
-    public ResponseEntity<Map<String, Object>> startIndexing() {
-        if (isIndexingInProgress.get()) {
-            logger.warn("Индексация уже запущена");
-            return ResponseEntity.badRequest().body(createErrorResponse("Индексация уже запущена"));
+    public ResponseEntity<Map<String, Object>> startIndexing(@RequestParam(defaultValue = "true") boolean resume) {
+        if (!indexingGuard.tryAcquire(IndexingGuard.INDEXING)) {
+            String activity = indexingGuard.getActivity();
+            logger.warn("Индексация не запущена: уже идёт {}", activity);
+            return ResponseEntity.badRequest().body(createErrorResponse(activity + " уже запущена"));
         }
 
-        isIndexingInProgress.set(true);
+        CancellationToken token = new CancellationToken();
+        cancellationToken = token;
         ForkJoinPool pool = new ForkJoinPool();
         activePools.add(pool);
 
         try {
-            pool.submit(this::performFullIndexing).get();
+            pool.submit(() -> performFullIndexing(token, resume)).get();
             return ResponseEntity.ok(createSuccessResponse());
         } catch (Exception e) {
             logger.error("Ошибка при запуске индексации", e);
@@ -61,126 +133,417 @@ public class DefaultController {
             pool.shutdown();
             activePools.remove(pool);
             awaitTermination(pool);
-            isIndexingInProgress.set(false);
+            indexingGuard.release(IndexingGuard.INDEXING);
         }
     }
 
     @GetMapping("/stopIndexing")
     public ResponseEntity<Map<String, Object>> stopIndexing() {
-        if (!isIndexingInProgress.get()) {
+        CancellationToken token = cancellationToken;
+        if (!indexingGuard.isHeldBy(IndexingGuard.INDEXING) || token == null) {
             logger.warn("Попытка остановить индексацию, которая не запущена");
             return ResponseEntity.badRequest().body(createErrorResponse("Индексация не запущена"));
         }
 
-        isIndexingInProgress.set(false);
-        activePools.forEach(ForkJoinPool::shutdownNow);
-        activePools.clear();
-        sites.forEach(site -> updateSiteStatus(site, Status.FAILED, "Индексация остановлена пользователем"));
+        token.cancel(STOPPED_BY_USER);
+        Duration timeout = Duration.ofMillis(crawlerSettings.getStopTimeoutMs());
+        try {
+            if (!token.awaitFinished(timeout)) {
+                logger.warn("Индексация не остановилась за {} мс, принудительное завершение пулов", timeout.toMillis());
+                activePools.forEach(ForkJoinPool::shutdownNow);
+                return ResponseEntity.status(500).body(createErrorResponse(
+                        "Индексация не остановилась за " + timeout.toSeconds() + " с"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ResponseEntity.status(500).body(createErrorResponse("Ожидание остановки индексации прервано"));
+        }
 
         logger.info("Индексация успешно остановлена");
         return ResponseEntity.ok(createSuccessResponse());
     }
 
-    private void performFullIndexing() {
-        for (String site : sites) {
-            if (!isIndexingInProgress.get()) {
-                logger.info("Индексация остановлена перед обработкой сайта: {}", site);
-                break;
-            }
-
-            try {
-                logger.info("Индексация сайта: {}", site);
-                deleteExistingSiteData(site);
-                updateSiteStatus(site, Status.INDEXING, null);
+    private void performFullIndexing(CancellationToken token, boolean resume) {
+        try {
+            for (Site siteConfig : sitesList.getSites()) {
+                String site = siteConfig.getUrl();
+                if (token.isCancelled()) {
+                    logger.info("Индексация остановлена перед обработкой сайта: {}", site);
+                    break;
+                }
 
-                ForkJoinPool pool = new ForkJoinPool();
-                activePools.add(pool);
+                CrawlFrontier frontier = resume ? checkpointStore.load(site).orElse(null) : null;
+                boolean completed = false;
                 try {
-                    pool.invoke(new PageCrawler(site, site));
+                    RobotsRules robots = discoveryService.getRobotsRules(site, USER_AGENT);
+                    List<String> seedUrls = new ArrayList<>();
+                    int siteId;
+                    if (frontier != null) {
+                        logger.info("Продолжение индексации сайта {} с контрольной точки: {} обработано, {} в очереди",
+                                site, frontier.getVisitedCount(), frontier.getPendingCount());
+                        siteId = resumeSiteRecord(siteConfig);
+                        seedUrls.addAll(frontier.getPending());
+                    } else {
+                        logger.info("Индексация сайта: {}", site);
+                        deleteExistingSiteData(site);
+                        siteId = createSiteRecord(siteConfig);
+                        frontier = new CrawlFrontier(site);
+                        frontier.enqueue(site);
+                        seedUrls.add(site);
+                        // Страницы из sitemap.xml, самые свежие первыми
+                        for (String url : discoveryService.discover(site, robots, USER_AGENT, token)) {
+                            if (frontier.enqueue(url)) {
+                                seedUrls.add(url);
+                            }
+                        }
+                    }
+                    checkpointStore.register(frontier);
+                    nearDuplicates.load(siteId);
+
+                    SiteCrawl crawl = new SiteCrawl(site, siteId, token, frontier, robots);
+                    List<PageCrawler> seeds = new ArrayList<>();
+                    for (String url : seedUrls) {
+                        seeds.add(new PageCrawler(crawl, url));
+                        metrics.taskQueued();
+                    }
+
+                    ForkJoinPool pool = new ForkJoinPool();
+                    activePools.add(pool);
+                    try {
+                        pool.invoke(ForkJoinTask.adapt(() -> {
+                            ForkJoinTask.invokeAll(seeds);
+                        }));
+                    } finally {
+                        pool.shutdown();
+                        activePools.remove(pool);
+                        // Леммы уже сохранённых страниц дописываем и при остановке
+                        indexBatchWriter.flush();
+                        nearDuplicates.release(siteId);
+                    }
+
+                    // Единственная итоговая запись статуса для сайта, на котором застала отмена
+                    if (token.isCancelled()) {
+                        updateSiteStatus(site, Status.FAILED, token.getReason());
+                        logger.info("Индексация сайта остановлена: {}", site);
+                        break;
+                    }
+
+                    completed = true;
+                    // Ошибки отдельных страниц не делают сайт FAILED, но видны в last_error
+                    updateSiteStatus(site, Status.INDEXED, crawl.pageErrors());
+                    logger.info("Индексация сайта завершена: {}", site);
+                } catch (Exception e) {
+                    updateSiteStatus(site, Status.FAILED, e.getMessage());
+                    logger.error("Ошибка при индексации сайта: {}", site, e);
                 } finally {
-                    pool.shutdown();
-                    activePools.remove(pool);
+                    if (frontier != null) {
+                        checkpointStore.unregister(frontier, completed);
+                    }
                 }
-
-                updateSiteStatus(site, Status.INDEXED, null);
-                logger.info("Индексация сайта завершена: {}", site);
-            } catch (Exception e) {
-                updateSiteStatus(site, Status.FAILED, e.getMessage());
-                logger.error("Ошибка при индексации сайта: {}", site, e);
             }
+        } finally {
+            token.markFinished();
         }
     }
 
     private void deleteExistingSiteData(String siteUrl) {
-        jdbcTemplate.update("DELETE FROM page WHERE site_url = ?", siteUrl);
+        jdbcTemplate.update("DELETE FROM `index` WHERE page_id IN " +
+                "(SELECT p.id FROM page p JOIN site s ON p.site_id = s.id WHERE s.url = ?)", siteUrl);
+        jdbcTemplate.update("DELETE FROM lemma WHERE site_id IN (SELECT id FROM site WHERE url = ?)", siteUrl);
+        jdbcTemplate.update("DELETE FROM page WHERE site_id IN (SELECT id FROM site WHERE url = ?)", siteUrl);
         jdbcTemplate.update("DELETE FROM site WHERE url = ?", siteUrl);
+        statisticsRegistry.reset(siteUrl);
+    }
+
+    private int createSiteRecord(Site siteConfig) {
+        String sql = "INSERT INTO site (status, status_time, last_error, url, name, page_count, lemma_count) " +
+                "VALUES (?, NOW(), NULL, ?, ?, 0, 0)";
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+            statement.setString(1, Status.INDEXING.name());
+            statement.setString(2, siteConfig.getUrl());
+            statement.setString(3, siteConfig.getName());
+            return statement;
+        }, keyHolder);
+        int siteId = keyHolder.getKey().intValue();
+        statisticsRegistry.bindSiteId(siteId, siteConfig.getUrl());
+        statisticsRegistry.statusChanged(siteConfig.getUrl(), Status.INDEXING, null);
+        return siteId;
+    }
+
+    private int resumeSiteRecord(Site siteConfig) {
+        Integer siteId = jdbcTemplate.query("SELECT id FROM site WHERE url = ?",
+                rs -> rs.next() ? rs.getInt(1) : null, siteConfig.getUrl());
+        if (siteId == null) {
+            return createSiteRecord(siteConfig);
+        }
+        statisticsRegistry.bindSiteId(siteId, siteConfig.getUrl());
+        updateSiteStatus(siteConfig.getUrl(), Status.INDEXING, null);
+        Long pages = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM page WHERE site_id = ?", Long.class, siteId);
+        Long lemmas = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM lemma WHERE site_id = ?", Long.class, siteId);
+        statisticsRegistry.restore(siteConfig.getUrl(), pages != null ? pages : 0, lemmas != null ? lemmas : 0);
+        return siteId;
     }
 
     private void updateSiteStatus(String siteUrl, Status status, String error) {
         String sql = "UPDATE site SET status = ?, status_time = NOW(), last_error = ? WHERE url = ?";
         jdbcTemplate.update(sql, status.name(), error, siteUrl);
+        statisticsRegistry.statusChanged(siteUrl, status, error);
+    }
+
+    private void savePageToDatabase(SiteCrawl crawl, String pageUrl, int code, Document doc) {
+        ContentCodec codec = contentStorageSettings.getCodec();
+        String plainText = doc.text();
+        byte[] content = codec.encode(doc.html());
+        byte[] text = contentStorageSettings.isStoreText() ? codec.encode(plainText) : null;
+        String path = toPath(crawl.siteUrl(), pageUrl);
+        Long fingerprint = SimHash.fingerprint(plainText);
+        Integer original = fingerprint != null ? nearDuplicates.findOriginal(crawl.siteId(), fingerprint) : null;
+        // NOT EXISTS: после продолжения с контрольной точки страница из очереди могла быть уже сохранена
+        String sql = "INSERT INTO page (site_id, path, code, content, content_codec, text, simhash, duplicate_of) " +
+                "SELECT ?, ?, ?, ?, ?, ?, ?, ? FROM DUAL " +
+                "WHERE NOT EXISTS (SELECT 1 FROM page p WHERE p.site_id = ? AND p.path = ?)";
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        int inserted;
+        try {
+            inserted = jdbcTemplate.update(connection -> {
+                PreparedStatement statement = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+                statement.setInt(1, crawl.siteId());
+                statement.setString(2, path);
+                statement.setInt(3, code);
+                statement.setBytes(4, content);
+                statement.setString(5, codec.name());
+                statement.setBytes(6, text);
+                statement.setObject(7, fingerprint);
+                statement.setObject(8, original);
+                statement.setInt(9, crawl.siteId());
+                statement.setString(10, path);
+                return statement;
+            }, keyHolder);
+        } catch (DuplicateKeyException e) {
+            // Страницу одновременно сохранил пакетный /api/indexPages; ключ uk_page_site_path
+            inserted = 0;
+        }
+        if (inserted == 0) {
+            lemmatizeIfUnindexed(crawl, pageUrl, path, plainText);
+            return;
+        }
+        statisticsRegistry.pageAdded(crawl.siteUrl());
+        metrics.rowsWritten("page", 1);
+        metrics.pageCrawled();
+
+        int pageId = keyHolder.getKey().intValue();
+        if (original != null) {
+            logger.debug("Страница {} почти совпадает со страницей {}, лемматизация пропущена", pageUrl, original);
+            metrics.nearDuplicateSkipped();
+            return;
+        }
+        if (fingerprint != null) {
+            nearDuplicates.add(crawl.siteId(), pageId, fingerprint);
+        }
+        indexBatchWriter.add(crawl.siteId(), pageId, textProcessor.lemmatize(plainText), e -> crawl.pageFailed(pageUrl));
+    }
+
+    /**
+     * Страница уже сохранена, например до остановки, после которой обход продолжен
+     * с контрольной точки. Если её леммы не успели записаться, лемматизируем её
+     * здесь: иначе она так и осталась бы без индекса.
+     */
+    private void lemmatizeIfUnindexed(SiteCrawl crawl, String pageUrl, String path, String plainText) {
+        Integer pageId = jdbcTemplate.query("SELECT id FROM page WHERE site_id = ? AND path = ? AND duplicate_of IS NULL",
+                rs -> rs.next() ? rs.getInt(1) : null, crawl.siteId(), path);
+        if (pageId == null || indexBatchWriter.isIndexed(pageId)) {
+            return;
+        }
+        logger.info("Страница {} сохранена без лемм, лемматизируем заново", pageUrl);
+        indexBatchWriter.add(crawl.siteId(), pageId, textProcessor.lemmatize(plainText), e -> crawl.pageFailed(pageUrl));
     }
 
-    private void savePageToDatabase(String siteUrl, String pageUrl, String content) {
-        String sql = "INSERT INTO page (site_url, url, content) VALUES (?, ?, ?)";
-        jdbcTemplate.update(sql, siteUrl, pageUrl, content);
+    private static String toPath(String siteUrl, String pageUrl) {
+        String path = pageUrl.substring(siteUrl.length());
+        return path.startsWith("/") ? path : "/" + path;
+    }
+
+    /**
+     * Общее для всех задач обхода одного сайта.
+     */
+    private record SiteCrawl(String siteUrl, int siteId, CancellationToken token,
+                             CrawlFrontier frontier, RobotsRules robots,
+                             AtomicInteger failedPages, AtomicReference<String> lastFailedPage,
+                             AtomicLong nextFetchAt) {
+
+        SiteCrawl(String siteUrl, int siteId, CancellationToken token, CrawlFrontier frontier, RobotsRules robots) {
+            this(siteUrl, siteId, token, frontier, robots, new AtomicInteger(), new AtomicReference<>(), new AtomicLong());
+        }
+
+        /**
+         * Занимает ближайшее свободное время запроса к сайту; следующий запрос
+         * любой задачи будет не раньше чем через delayMs после него.
+         *
+         * @return сколько ждать до своего запроса, мс
+         */
+        long reserveFetch(long delayMs) {
+            while (true) {
+                long now = System.currentTimeMillis();
+                long next = nextFetchAt.get();
+                long start = Math.max(now, next);
+                if (nextFetchAt.compareAndSet(next, start + delayMs)) {
+                    return start - now;
+                }
+            }
+        }
+
+        void pageFailed(String pageUrl) {
+            failedPages.incrementAndGet();
+            lastFailedPage.set(pageUrl);
+        }
+
+        /**
+         * @return описание ошибок страниц для last_error или null, если их не было
+         */
+        String pageErrors() {
+            int failed = failedPages.get();
+            return failed == 0 ? null
+                    : "Не удалось обработать страниц: " + failed + ", последняя: " + lastFailedPage.get();
+        }
     }
 
     private class PageCrawler extends RecursiveTask<Void> {
+        private final SiteCrawl crawl;
         private final String siteUrl;
         private final String pageUrl;
+        private final CancellationToken token;
+        private final CrawlFrontier frontier;
+        private final RobotsRules robots;
 
-        public PageCrawler(String siteUrl, String pageUrl) {
-            this.siteUrl = siteUrl;
+        public PageCrawler(SiteCrawl crawl, String pageUrl) {
+            this.crawl = crawl;
+            this.siteUrl = crawl.siteUrl();
             this.pageUrl = pageUrl;
+            this.token = crawl.token();
+            this.frontier = crawl.frontier();
+            this.robots = crawl.robots();
         }
 
         @Override
         protected Void compute() {
+            metrics.taskStarted();
+            if (token.isCancelled()) {
+                return null;
+            }
             try {
-                if (!isIndexingInProgress.get()) {
-                    logger.info("Индексация остановлена пользователем для сайта: {}", siteUrl);
-                    updateSiteStatus(siteUrl, Status.FAILED, "Индексация остановлена пользователем");
+                // Пауза до загрузки, по общему расписанию сайта: иначе каждая задача пула
+                // выдерживала бы её сама, и сайт получал бы столько запросов, сколько потоков.
+                // Отменённая во время паузы страница остаётся в очереди
+                if (token.sleep(crawl.reserveFetch(politenessDelay()))) {
                     return null;
                 }
+                HttpResponse<byte[]> response = fetch(pageUrl);
+                if (response == null) {
+                    frontier.done(pageUrl);
+                    return null;
+                }
+                if (response.statusCode() >= 400) {
+                    throw new HttpStatusException("HTTP error fetching URL", response.statusCode(), pageUrl);
+                }
+                Document doc = Jsoup.parse(new ByteArrayInputStream(response.body()), TextProcessor.charsetOf(response), pageUrl);
 
-                Document doc = Jsoup.connect(pageUrl)
-                        .userAgent(USER_AGENT)
-                        .referrer(REFERRER)
-                        .get();
-
-                savePageToDatabase(siteUrl, pageUrl, doc.html());
-
-                Thread.sleep(500 + new Random().nextInt(4500));
+                token.throwIfCancelled();
+                savePageToDatabase(crawl, pageUrl, response.statusCode(), doc);
 
+                // Страница остаётся в очереди, пока не поставлены в неё все её ссылки:
+                // при остановке или падении процесса продолжение обойдёт её заново
+                // (повторно она не сохранится) и не потеряет поддерево
                 Elements links = doc.select("a[href]");
                 List<PageCrawler> tasks = new ArrayList<>();
+                boolean linksQueued = true;
 
                 for (var link : links) {
+                    if (token.isCancelled()) {
+                        linksQueued = false;
+                        break;
+                    }
                     String nextUrl = link.absUrl("href");
-                    if (!isPageIndexed(nextUrl)) {
-                        PageCrawler task = new PageCrawler(siteUrl, nextUrl);
+                    if (nextUrl.startsWith(siteUrl) && isAllowed(nextUrl) && frontier.enqueue(nextUrl)) {
+                        PageCrawler task = new PageCrawler(crawl, nextUrl);
                         tasks.add(task);
+                        metrics.taskQueued();
                         task.fork();
                     }
                 }
+                if (linksQueued) {
+                    frontier.done(pageUrl);
+                }
 
                 for (PageCrawler task : tasks) {
                     task.join();
                 }
 
-            } catch (IOException | InterruptedException e) {
-                logger.error("Ошибка при индексации страницы: {}", pageUrl, e);
-                updateSiteStatus(siteUrl, Status.FAILED, "Ошибка при обработке страницы: " + pageUrl);
+            } catch (CancellationException e) {
+                logger.debug("Загрузка страницы отменена: {}", pageUrl);
+            } catch (InterruptedException e) {
+                // Пул останавливают принудительно: страница остаётся в очереди для продолжения
                 Thread.currentThread().interrupt();
+            } catch (IOException e) {
+                if (token.isCancelled()) {
+                    return null;
+                }
+                frontier.done(pageUrl);
+                // Итоговый статус сайта выставит performFullIndexing, здесь только учёт ошибки
+                crawl.pageFailed(pageUrl);
+                logger.error("Ошибка при индексации страницы: {}", pageUrl, e);
             }
             return null;
         }
 
-        private boolean isPageIndexed(String pageUrl) {
-            String sql = "SELECT COUNT(*) FROM page WHERE url = ?";
-            Integer count = jdbcTemplate.queryForObject(sql, Integer.class, pageUrl);
-            return count != null && count > 0;
+        private boolean isAllowed(String url) {
+            try {
+                return robots.isAllowed(UrlDiscoveryService.pathOf(url));
+            } catch (IllegalArgumentException e) {
+                return false; // некорректный адрес всё равно не загрузится
+            }
+        }
+
+        private long politenessDelay() {
+            int min = crawlerSettings.getMinDelayMs();
+            int max = crawlerSettings.getMaxDelayMs();
+            long delay = max > min ? ThreadLocalRandom.current().nextInt(min, max) : min;
+            return Math.max(delay, robots.getCrawlDelayMs());
+        }
+
+        /**
+         * Загрузка через HttpClient.sendAsync: отмена токена отменяет future,
+         * а вместе с ним и сам HTTP-обмен, не дожидаясь таймаута.
+         *
+         * @return null, если адрес некорректен (absUrl не кодирует пробелы, | и т.п.)
+         */
+        private HttpResponse<byte[]> fetch(String url) throws IOException, InterruptedException {
+            URI uri;
+            HttpRequest request;
+            try {
+                uri = URI.create(url);
+                request = HttpRequest.newBuilder(uri)
+                        .header("User-Agent", USER_AGENT)
+                        .header("Referer", REFERRER)
+                        .timeout(Duration.ofSeconds(30))
+                        .GET()
+                        .build();
+            } catch (IllegalArgumentException e) {
+                logger.warn("Некорректный адрес пропущен: {} ({})", url, e.getMessage());
+                return null;
+            }
+            String host = uri.getHost() != null ? uri.getHost() : "unknown";
+            Timer.Sample sample = metrics.startFetch();
+            try {
+                HttpResponse<byte[]> response = token.register(
+                        httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())).get();
+                metrics.fetchCompleted(sample, host, response.statusCode());
+                return response;
+            } catch (ExecutionException e) {
+                metrics.fetchFailed(sample, host, e.getCause());
+                throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+            }
         }
     }
 
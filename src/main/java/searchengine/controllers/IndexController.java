@@ -3,8 +3,10 @@ package searchengine.controllers;
 import searchengine.model.Index;
 import searchengine.services.IndexService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -12,6 +14,9 @@ import java.util.List;
 @RequestMapping("/api/indexes")
 public class IndexController {
 
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
     @Autowired
     private IndexService indexService;
 
@@ -21,10 +26,31 @@ public class IndexController {
         return ResponseEntity.ok(savedIndex);
     }
 
+    /**
+     * Страница записей индекса после afterId. Если страница заполнена, в заголовке
+     * X-Next-After-Id возвращается значение afterId для следующего запроса.
+     */
     @GetMapping
-    public ResponseEntity<List<Index>> getAllIndexes() {
-        List<Index> indexes = indexService.getAllIndexes();
-        return ResponseEntity.ok(indexes);
+    public ResponseEntity<List<Index>> getIndexes(@RequestParam(defaultValue = "0") int afterId,
+                                                  @RequestParam(defaultValue = "100") int limit,
+                                                  @RequestParam(required = false) Integer pageId,
+                                                  @RequestParam(required = false) Integer siteId,
+                                                  @RequestParam(required = false) String lemma) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        List<Index> indexes = indexService.getIndexesPage(afterId, pageSize, pageId, siteId, lemma);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (indexes.size() == pageSize) {
+            response.header("X-Next-After-Id", String.valueOf(indexes.get(indexes.size() - 1).getId()));
+        }
+        return response.body(indexes);
+    }
+
+    @GetMapping("/stream")
+    public ResponseEntity<StreamingResponseBody> streamIndexes(@RequestParam(required = false) Integer pageId,
+                                                               @RequestParam(required = false) Integer siteId,
+                                                               @RequestParam(required = false) String lemma) {
+        StreamingResponseBody body = out -> indexService.streamIndexes(pageId, siteId, lemma, out);
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
     }
 
     @GetMapping("/{id}")
@@ -3,8 +3,10 @@ package searchengine.controllers;
 import searchengine.model.Lemma;
 import searchengine.services.LemmaService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -12,6 +14,9 @@ import java.util.List;
 @RequestMapping("/api/lemmas")
 public class LemmaController {
 
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
     @Autowired
     private LemmaService lemmaService;
 
@@ -21,10 +26,29 @@ public class LemmaController {
         return ResponseEntity.ok(savedLemma);
     }
 
+    /**
+     * Страница лемм после afterId. Если страница заполнена, в заголовке
+     * X-Next-After-Id возвращается значение afterId для следующего запроса.
+     */
     @GetMapping
-    public ResponseEntity<List<Lemma>> getAllLemmas() {
-        List<Lemma> lemmas = lemmaService.getAllLemmas();
-        return ResponseEntity.ok(lemmas);
+    public ResponseEntity<List<Lemma>> getLemmas(@RequestParam(defaultValue = "0") int afterId,
+                                                 @RequestParam(defaultValue = "100") int limit,
+                                                 @RequestParam(required = false) Integer siteId,
+                                                 @RequestParam(required = false) String lemma) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        List<Lemma> lemmas = lemmaService.getLemmasPage(afterId, pageSize, siteId, lemma);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (lemmas.size() == pageSize) {
+            response.header("X-Next-After-Id", String.valueOf(lemmas.get(lemmas.size() - 1).getId()));
+        }
+        return response.body(lemmas);
+    }
+
+    @GetMapping("/stream")
+    public ResponseEntity<StreamingResponseBody> streamLemmas(@RequestParam(required = false) Integer siteId,
+                                                              @RequestParam(required = false) String lemma) {
+        StreamingResponseBody body = out -> lemmaService.streamLemmas(siteId, lemma, out);
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
     }
 
     @GetMapping("/{id}")
@@ -0,0 +1,54 @@
+package searchengine.controllers;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import searchengine.services.IndexSnapshotService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Снимок индекса: GET выгружает его, POST загружает на новый узел вместо
+ * текущих данных.
+ */
+@RestController
+@RequestMapping("/api/snapshot")
+public class SnapshotController {
+
+    @Autowired
+    private IndexSnapshotService snapshotService;
+
+    @GetMapping
+    public ResponseEntity<StreamingResponseBody> exportSnapshot() {
+        StreamingResponseBody body = out -> snapshotService.export(out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"index.snapshot\"")
+                .body(body);
+    }
+
+    @PostMapping(consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<Map<String, Object>> importSnapshot(InputStream body) {
+        try {
+            return ResponseEntity.ok(snapshotService.importSnapshot(body));
+        } catch (IllegalStateException e) {
+            return error(e.getMessage(), HttpStatus.CONFLICT);
+        } catch (IOException e) {
+            return error("Не удалось прочитать снимок: " + e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    private static ResponseEntity<Map<String, Object>> error(String message, HttpStatus status) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("result", false);
+        response.put("error", message);
+        return new ResponseEntity<>(response, status);
+    }
+}
@@ -0,0 +1,17 @@
+package searchengine.dto.indexing;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Либо список полных адресов urls, либо адрес сайта site и список путей paths.
+ * siteId можно не указывать: сайт определяется по адресу страницы.
+ */
+@Data
+public class BatchIndexRequest {
+    private Integer siteId;
+    private List<String> urls;
+    private String site;
+    private List<String> paths;
+}
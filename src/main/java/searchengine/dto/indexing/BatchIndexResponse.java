@@ -0,0 +1,17 @@
+package searchengine.dto.indexing;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BatchIndexResponse {
+    private boolean result;
+    private String jobId;
+    private String status;
+    private int total;
+    private int indexed;
+    private int failed;
+    private String error;
+    private List<PageIndexResult> pages;
+}
@@ -0,0 +1,11 @@
+package searchengine.dto.indexing;
+
+import lombok.Data;
+
+@Data
+public class PageIndexResult {
+    private String url;
+    private String status;
+    private int lemmas;
+    private String error;
+}
@@ -0,0 +1,15 @@
+package searchengine.dto.search;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class SearchResponse {
+    private boolean result;
+    private int count;
+    private List<SearchData> data;
+    // Часть шардов не ответила вовремя: count и data неполные
+    private boolean partial;
+    private int missingShards;
+}
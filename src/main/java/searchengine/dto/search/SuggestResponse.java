@@ -0,0 +1,11 @@
+package searchengine.dto.search;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class SuggestResponse {
+    private boolean result;
+    private List<SuggestionData> data;
+}
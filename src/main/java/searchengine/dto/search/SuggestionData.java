@@ -0,0 +1,9 @@
+package searchengine.dto.search;
+
+import lombok.Data;
+
+@Data
+public class SuggestionData {
+    private String lemma;
+    private int frequency;
+}
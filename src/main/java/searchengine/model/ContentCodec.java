@@ -0,0 +1,135 @@
+package searchengine.model;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Способ хранения тела страницы в таблице page.
+ * Сжатые форматы хранят в первых 4 байтах длину исходного текста в байтах,
+ * чтобы распаковка выполнялась в буфер нужного размера за один проход.
+ */
+public enum ContentCodec {
+
+    NONE {
+        @Override
+        protected byte[] compress(byte[] raw) {
+            return raw;
+        }
+
+        @Override
+        protected byte[] decompress(byte[] data) {
+            return data;
+        }
+    },
+
+    DEFLATE {
+        @Override
+        protected byte[] compress(byte[] raw) {
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            try {
+                deflater.setInput(raw);
+                deflater.finish();
+                ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 4 + 16);
+                out.writeBytes(ByteBuffer.allocate(Integer.BYTES).putInt(raw.length).array());
+                byte[] buffer = new byte[8192];
+                while (!deflater.finished()) {
+                    int n = deflater.deflate(buffer);
+                    out.write(buffer, 0, n);
+                }
+                return out.toByteArray();
+            } finally {
+                deflater.end();
+            }
+        }
+
+        @Override
+        protected byte[] decompress(byte[] data) {
+            byte[] raw = new byte[originalLength(data)];
+            Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(data, Integer.BYTES, data.length - Integer.BYTES);
+                int offset = 0;
+                while (offset < raw.length) {
+                    int n = inflater.inflate(raw, offset, raw.length - offset);
+                    // Оборванный поток: inflate возвращает 0 и ждёт данных, которых уже не будет
+                    if (n == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                        throw new IllegalStateException("Повреждённое содержимое страницы (DEFLATE): распаковано "
+                                + offset + " байт из " + raw.length);
+                    }
+                    offset += n;
+                }
+                return raw;
+            } catch (DataFormatException e) {
+                throw new IllegalStateException("Повреждённое содержимое страницы (DEFLATE)", e);
+            } finally {
+                inflater.end();
+            }
+        }
+    },
+
+    LZ4 {
+        @Override
+        protected byte[] compress(byte[] raw) {
+            LZ4Compressor compressor = LZ4_FACTORY.fastCompressor();
+            byte[] out = new byte[Integer.BYTES + compressor.maxCompressedLength(raw.length)];
+            ByteBuffer.wrap(out).putInt(raw.length);
+            int length = compressor.compress(raw, 0, raw.length, out, Integer.BYTES);
+            return Arrays.copyOf(out, Integer.BYTES + length);
+        }
+
+        @Override
+        protected byte[] decompress(byte[] data) {
+            // safeDecompressor проверяет границы входа: fastDecompressor на битых данных читает за массив
+            LZ4SafeDecompressor decompressor = LZ4_FACTORY.safeDecompressor();
+            byte[] raw = new byte[originalLength(data)];
+            try {
+                int length = decompressor.decompress(data, Integer.BYTES, data.length - Integer.BYTES, raw, 0);
+                if (length != raw.length) {
+                    throw new IllegalStateException("Повреждённое содержимое страницы (LZ4): распаковано "
+                            + length + " байт из " + raw.length);
+                }
+            } catch (LZ4Exception e) {
+                throw new IllegalStateException("Повреждённое содержимое страницы (LZ4)", e);
+            }
+            return raw;
+        }
+    };
+
+    private static final LZ4Factory LZ4_FACTORY = LZ4Factory.fastestInstance();
+
+    protected abstract byte[] compress(byte[] raw);
+
+    private static int originalLength(byte[] data) {
+        int length = data.length >= Integer.BYTES ? ByteBuffer.wrap(data).getInt() : -1;
+        if (length < 0) {
+            throw new IllegalStateException("Повреждённое содержимое страницы: нет длины исходного текста");
+        }
+        return length;
+    }
+
+    protected abstract byte[] decompress(byte[] data);
+
+    public byte[] encode(String text) {
+        if (text == null) {
+            return null;
+        }
+        return compress(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public String decode(byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        return new String(decompress(data), StandardCharsets.UTF_8);
+    }
+}
@@ -4,7 +4,10 @@ import jakarta.persistence.*;
 import lombok.Data;
 
 @Entity
-@Table(name = "index")
+@Table(name = "index", indexes = {
+        @jakarta.persistence.Index(name = "idx_index_page", columnList = "page_id"),
+        @jakarta.persistence.Index(name = "idx_index_lemma", columnList = "lemma_id")
+})
 @Data
 public class Index {
 
@@ -20,4 +23,8 @@ public class Index {
 
     @Column(name = "`rank`", nullable = false)
     private float rank;
+
+    // Позиции леммы на странице в формате PositionCodec; null, если позиционный индекс выключен
+    @Column(name = "positions", columnDefinition = "BLOB")
+    private byte[] positions;
 }
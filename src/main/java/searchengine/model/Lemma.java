@@ -4,7 +4,7 @@ import jakarta.persistence.*;
 import lombok.Data;
 
 @Entity
-@Table(name = "lemma")
+@Table(name = "lemma", uniqueConstraints = @UniqueConstraint(name = "uk_lemma_site_lemma", columnNames = {"site_id", "lemma"}))
 @Data
 public class Lemma {
 
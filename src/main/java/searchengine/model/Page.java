@@ -24,7 +24,23 @@ public class Page {
     @Column(name = "code", nullable = false)
     private int code;
 
-    @Column(name = "content", columnDefinition = "MEDIUMTEXT", nullable = false)
-    private String content;
-
-}
\ No newline at end of file
+    // HTML страницы, сжатый кодеком contentCodec
+    @Column(name = "content", columnDefinition = "MEDIUMBLOB", nullable = false)
+    private byte[] content;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "content_codec", columnDefinition = "VARCHAR(16)", nullable = false)
+    private ContentCodec contentCodec = ContentCodec.NONE;
+
+    // Извлечённый текст страницы тем же кодеком; null, если хранение текста отключено
+    @Column(name = "text", columnDefinition = "MEDIUMBLOB")
+    private byte[] text;
+
+    // SimHash извлечённого текста; null у слишком коротких страниц
+    @Column(name = "simhash")
+    private Long simhash;
+
+    // Оригинал, если страница — почти дубликат: она сохранена, но не лемматизирована
+    @Column(name = "duplicate_of")
+    private Integer duplicateOf;
+}
@@ -33,6 +33,12 @@ public class Site {
     @Column(name = "name", columnDefinition = "VARCHAR(255)", nullable = false)
     private String name;
 
+    @Column(name = "page_count", columnDefinition = "INT NOT NULL DEFAULT 0")
+    private int pageCount;
+
+    @Column(name = "lemma_count", columnDefinition = "INT NOT NULL DEFAULT 0")
+    private int lemmaCount;
+
     @OneToMany(mappedBy = "site", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<Page> pages;
 
@@ -1,10 +1,26 @@
 package searchengine.repository;
 
 import searchengine.model.Index;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface IndexRepository extends JpaRepository<Index, Integer> {
-    // Дополнительные методы можно добавить по необходимости
-}
\ No newline at end of file
+
+    // Keyset-пагинация: следующая страница начинается после последнего id предыдущей
+    @Query("SELECT i FROM Index i WHERE i.id > :afterId " +
+            "AND (:pageId IS NULL OR i.pageId = :pageId) " +
+            "AND (:siteId IS NULL OR i.lemmaId IN (SELECT l.id FROM Lemma l WHERE l.siteId = :siteId)) " +
+            "AND (:lemma IS NULL OR i.lemmaId IN (SELECT l.id FROM Lemma l WHERE l.lemma = :lemma)) " +
+            "ORDER BY i.id")
+    List<Index> findPage(@Param("afterId") int afterId,
+                         @Param("pageId") Integer pageId,
+                         @Param("siteId") Integer siteId,
+                         @Param("lemma") String lemma,
+                         Pageable pageable);
+}
@@ -1,10 +1,24 @@
 package searchengine.repository;
 
 import searchengine.model.Lemma;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface LemmaRepository extends JpaRepository<Lemma, Integer> {
-    // Могут быть добавлены методы для поиска по полям
+
+    // Keyset-пагинация: следующая страница начинается после последнего id предыдущей
+    @Query("SELECT l FROM Lemma l WHERE l.id > :afterId " +
+            "AND (:siteId IS NULL OR l.siteId = :siteId) " +
+            "AND (:lemma IS NULL OR l.lemma = :lemma) " +
+            "ORDER BY l.id")
+    List<Lemma> findPage(@Param("afterId") int afterId,
+                         @Param("siteId") Integer siteId,
+                         @Param("lemma") String lemma,
+                         Pageable pageable);
 }
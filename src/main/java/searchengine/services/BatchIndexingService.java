@@ -0,0 +1,278 @@
+package searchengine.services;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import searchengine.TextProcessor;
+import searchengine.config.BatchIndexingSettings;
+import searchengine.dto.indexing.BatchIndexResponse;
+import searchengine.dto.indexing.PageIndexResult;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пакетная индексация страниц для /api/indexPages. Страницы загружаются и
+ * лемматизируются параллельно на виртуальных потоках с ограничением числа
+ * одновременных запросов к одному хосту, а леммы всех страниц задания
+ * пишутся в базу общими пакетами через {@link IndexBatchWriter}.
+ */
+@Service
+public class BatchIndexingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchIndexingService.class);
+    private static final String WRITE_ERROR = "Ошибка при сохранении лемм в базу данных";
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private final Map<String, Semaphore> hostPermits = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @Autowired
+    private TextProcessor textProcessor;
+
+    @Autowired
+    private IndexBatchWriter indexBatchWriter;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private BatchIndexingSettings settings;
+
+    @Autowired
+    private IndexingGuard indexingGuard;
+
+    /**
+     * Создаёт задание и сразу возвращает его идентификатор; страницы обрабатываются в фоне.
+     * Разрешение на запись страниц держится до конца задания, включая сброс буфера лемм.
+     *
+     * @throws IllegalStateException идёт загрузка снимка индекса
+     */
+    public String submit(List<String> urls, Integer siteId) {
+        if (urls.isEmpty()) {
+            throw new IllegalArgumentException("Не передано ни одного адреса");
+        }
+        if (urls.size() > settings.getMaxUrls()) {
+            throw new IllegalArgumentException("Слишком много адресов в одном задании: " + urls.size()
+                    + ", допускается не больше " + settings.getMaxUrls());
+        }
+        evictExpiredJobs();
+        if (!indexingGuard.tryAcquirePageWrite()) {
+            throw new IllegalStateException(indexingGuard.getActivity() + " уже запущена, индексация страниц невозможна");
+        }
+
+        Job job = new Job(UUID.randomUUID().toString(), urls);
+        jobs.put(job.id, job);
+        try {
+            executor.submit(() -> {
+                try {
+                    run(job, siteId);
+                } finally {
+                    indexingGuard.releasePageWrite();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            indexingGuard.releasePageWrite();
+            jobs.remove(job.id);
+            throw e;
+        }
+        logger.info("Задание пакетной индексации {}: {} страниц", job.id, urls.size());
+        return job.id;
+    }
+
+    public BatchIndexResponse getJob(String jobId) {
+        Job job = jobs.get(jobId);
+        return job != null ? job.toResponse() : null;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void run(Job job, Integer siteId) {
+        Map<String, Integer> sites = siteId == null ? loadSites() : Map.of();
+        List<Future<?>> tasks = new ArrayList<>();
+        for (String url : job.results.keySet()) {
+            tasks.add(executor.submit(() -> indexUrl(job, url, siteId != null ? siteId : findSiteId(sites, url))));
+        }
+        for (Future<?> task : tasks) {
+            try {
+                task.get();
+            } catch (ExecutionException e) {
+                logger.error("Ошибка в задании пакетной индексации {}", job.id, e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                job.finish("Задание прервано");
+                return;
+            }
+        }
+
+        // Дописываем остаток общего буфера, чтобы к концу задания все леммы были в базе.
+        // Пакеты с нашими страницами могли писать и другие потоки: об их ошибках
+        // страницы узнали через writeFailed, а не через это исключение
+        try {
+            indexBatchWriter.flush();
+        } catch (DataAccessException e) {
+            logger.error("Не удалось записать леммы задания {}", job.id, e);
+        }
+        job.results.values().forEach(PageResult::complete);
+        boolean writeFailed = job.results.values().stream().anyMatch(result -> result.writeError != null);
+        job.finish(writeFailed ? WRITE_ERROR : null);
+        logger.info("Задание пакетной индексации {} завершено", job.id);
+    }
+
+    private void indexUrl(Job job, String url, Integer siteId) {
+        PageResult result = job.results.get(url);
+        if (siteId == null) {
+            result.fail("Данная страница находится за пределами сайтов, указанных в конфигурационном файле");
+            return;
+        }
+        if (!textProcessor.isValidUrl(url)) {
+            result.fail("Некорректный адрес страницы");
+            return;
+        }
+
+        Semaphore permits = hostPermits.computeIfAbsent(URI.create(url).getHost(),
+                host -> new Semaphore(settings.getPerHostConcurrency()));
+        try {
+            permits.acquire();
+            try {
+                result.prepared(textProcessor.preparePage(url, siteId, e -> result.writeFailed()).size());
+            } finally {
+                permits.release();
+            }
+        } catch (IOException e) {
+            logger.warn("Не удалось загрузить страницу {}: {}", url, e.getMessage());
+            result.fail("Не удалось загрузить содержимое страницы");
+        } catch (IllegalArgumentException e) {
+            result.fail(e.getMessage());
+        } catch (DataAccessException e) {
+            logger.error("Ошибка при сохранении страницы {}", url, e);
+            result.fail("Ошибка при сохранении страницы в базу данных");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.fail("Задание прервано");
+        }
+    }
+
+    private Map<String, Integer> loadSites() {
+        Map<String, Integer> sites = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT id, url FROM site", rs -> {
+            sites.put(rs.getString("url"), rs.getInt("id"));
+        });
+        return sites;
+    }
+
+    private static Integer findSiteId(Map<String, Integer> sites, String url) {
+        return sites.entrySet().stream()
+                .filter(site -> url.startsWith(site.getKey()))
+                .max((a, b) -> Integer.compare(a.getKey().length(), b.getKey().length()))
+                .map(Map.Entry::getValue)
+                .orElse(null);
+    }
+
+    private void evictExpiredJobs() {
+        long expiredBefore = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(settings.getJobTtlMinutes());
+        jobs.values().removeIf(job -> job.finishedAt > 0 && job.finishedAt < expiredBefore);
+    }
+
+    private static class Job {
+        private final String id;
+        private final Map<String, PageResult> results = new LinkedHashMap<>();
+        private volatile long finishedAt;
+        private volatile String error;
+
+        private Job(String id, List<String> urls) {
+            this.id = id;
+            // Повторяющиеся адреса индексируются один раз
+            urls.forEach(url -> results.putIfAbsent(url, new PageResult(url)));
+        }
+
+        private void finish(String error) {
+            this.error = error;
+            this.finishedAt = System.currentTimeMillis();
+        }
+
+        private BatchIndexResponse toResponse() {
+            List<PageIndexResult> pages = results.values().stream().map(PageResult::toDto).toList();
+            BatchIndexResponse response = new BatchIndexResponse();
+            response.setResult(true);
+            response.setJobId(id);
+            response.setStatus(finishedAt > 0 ? "DONE" : "RUNNING");
+            response.setTotal(pages.size());
+            response.setIndexed((int) pages.stream().filter(page -> page.getStatus().equals("INDEXED")).count());
+            response.setFailed((int) pages.stream().filter(page -> page.getStatus().equals("FAILED")).count());
+            response.setError(error);
+            response.setPages(pages);
+            return response;
+        }
+    }
+
+    /**
+     * PENDING — ещё не загружена, WRITING — леммы в общем буфере записи,
+     * INDEXED — записана в индекс, FAILED — ошибка.
+     */
+    private static class PageResult {
+        private final String url;
+        private volatile String status = "PENDING";
+        private volatile int lemmas;
+        private volatile String error;
+        private volatile String writeError;
+
+        private PageResult(String url) {
+            this.url = url;
+        }
+
+        private void prepared(int lemmas) {
+            this.lemmas = lemmas;
+            this.status = "WRITING";
+        }
+
+        private void fail(String error) {
+            this.error = error;
+            this.status = "FAILED";
+        }
+
+        private void writeFailed() {
+            this.writeError = WRITE_ERROR;
+        }
+
+        private void complete() {
+            if (!status.equals("WRITING")) {
+                return;
+            }
+            if (writeError != null) {
+                fail(writeError);
+            } else {
+                status = "INDEXED";
+            }
+        }
+
+        private PageIndexResult toDto() {
+            PageIndexResult dto = new PageIndexResult();
+            dto.setUrl(url);
+            dto.setStatus(status);
+            dto.setLemmas(lemmas);
+            dto.setError(error);
+            return dto;
+        }
+    }
+}
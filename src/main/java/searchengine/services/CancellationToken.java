@@ -0,0 +1,80 @@
+package searchengine.services;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Признак отмены одного запуска индексации. Загрузчик регистрирует в нём
+ * незавершённые HTTP-запросы, чтобы отмена обрывала их сразу, а паузы между
+ * запросами прерываются без ожидания полного интервала.
+ */
+public class CancellationToken {
+
+    private final CountDownLatch cancelled = new CountDownLatch(1);
+    private final CountDownLatch finished = new CountDownLatch(1);
+    private final Set<CompletableFuture<?>> inFlight = ConcurrentHashMap.newKeySet();
+    private volatile String reason;
+
+    public boolean isCancelled() {
+        return cancelled.getCount() == 0;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    /**
+     * @return false, если отмена уже была запрошена ранее
+     */
+    public synchronized boolean cancel(String reason) {
+        if (isCancelled()) {
+            return false;
+        }
+        this.reason = reason;
+        cancelled.countDown();
+        inFlight.forEach(future -> future.cancel(true));
+        inFlight.clear();
+        return true;
+    }
+
+    public void throwIfCancelled() {
+        if (isCancelled()) {
+            throw new CancellationException(reason);
+        }
+    }
+
+    /**
+     * Связывает асинхронный запрос с токеном: при отмене future отменяется,
+     * что для java.net.http.HttpClient обрывает сам обмен с сервером.
+     */
+    public <T> CompletableFuture<T> register(CompletableFuture<T> future) {
+        inFlight.add(future);
+        future.whenComplete((result, error) -> inFlight.remove(future));
+        if (isCancelled()) {
+            future.cancel(true);
+        }
+        return future;
+    }
+
+    /**
+     * Пауза, которая заканчивается досрочно при отмене.
+     *
+     * @return true, если пауза прервана отменой
+     */
+    public boolean sleep(long millis) throws InterruptedException {
+        return millis > 0 ? cancelled.await(millis, TimeUnit.MILLISECONDS) : isCancelled();
+    }
+
+    public void markFinished() {
+        finished.countDown();
+    }
+
+    public boolean awaitFinished(Duration timeout) throws InterruptedException {
+        return finished.await(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+}
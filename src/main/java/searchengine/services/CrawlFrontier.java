@@ -0,0 +1,78 @@
+package searchengine.services;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Очередь обхода одного сайта: все когда-либо поставленные в очередь адреса
+ * и те из них, что ещё не обработаны. Этого достаточно, чтобы сохранить
+ * контрольную точку и продолжить обход после перезапуска.
+ */
+public class CrawlFrontier {
+
+    private final String siteUrl;
+    private final Set<String> seen = ConcurrentHashMap.newKeySet();
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+    public CrawlFrontier(String siteUrl) {
+        this.siteUrl = siteUrl;
+    }
+
+    public static CrawlFrontier restore(String siteUrl, Collection<String> visited, Collection<String> pending) {
+        CrawlFrontier frontier = new CrawlFrontier(siteUrl);
+        frontier.seen.addAll(visited);
+        frontier.seen.addAll(pending);
+        frontier.pending.addAll(pending);
+        return frontier;
+    }
+
+    public String getSiteUrl() {
+        return siteUrl;
+    }
+
+    /**
+     * @return false, если адрес уже встречался в этом обходе
+     */
+    public boolean enqueue(String url) {
+        if (!seen.add(url)) {
+            return false;
+        }
+        pending.add(url);
+        return true;
+    }
+
+    public void done(String url) {
+        pending.remove(url);
+    }
+
+    public int getVisitedCount() {
+        return seen.size() - pending.size();
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    public List<String> getPending() {
+        return new ArrayList<>(pending);
+    }
+
+    /**
+     * Согласованный снимок для контрольной точки. Сначала копируется seen, потом pending:
+     * адрес, обработанный между копиями, попадёт в visited, а добавленный между
+     * копиями — в pending, так что ни один необработанный адрес не потеряется.
+     */
+    public Snapshot snapshot() {
+        Set<String> visited = new HashSet<>(seen);
+        List<String> queued = new ArrayList<>(pending);
+        queued.forEach(visited::remove);
+        return new Snapshot(siteUrl, new ArrayList<>(visited), queued);
+    }
+
+    public record Snapshot(String siteUrl, List<String> visited, List<String> pending) {
+    }
+}
@@ -0,0 +1,202 @@
+package searchengine.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import searchengine.config.CrawlerSettings;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Периодически сохраняет очереди обхода активных сайтов в локальные файлы.
+ * Формат: gzip(DataOutputStream) — заголовок, адрес сайта, отсортированные
+ * обработанные адреса и адреса в очереди. Адреса пишутся как длина и байты
+ * UTF-8: writeUTF не принимает строки длиннее 65535 байт, а одна такая
+ * ссылка ломала бы все последующие контрольные точки сайта.
+ * <p>
+ * Перед записью сбрасывается {@link IndexBatchWriter}: страница отмечается
+ * обработанной, когда её леммы ещё лежат в буфере, и без сброса после
+ * падения процесса продолжение не вернулось бы к ней, а леммы пропали бы. Запись идёт во временный файл
+ * с последующим атомарным переименованием, чтобы сбой во время записи
+ * не испортил предыдущую контрольную точку.
+ */
+@Component
+public class FrontierCheckpointStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(FrontierCheckpointStore.class);
+    private static final int MAGIC = 0x46524E54; // "FRNT"
+    private static final int VERSION = 2;
+    // Версия 1 писала адреса через writeUTF; такие файлы по-прежнему читаются
+    private static final int VERSION_UTF = 1;
+
+    private final Map<String, CrawlFrontier> active = new ConcurrentHashMap<>();
+
+    @Autowired
+    private CrawlerSettings crawlerSettings;
+
+    @Autowired
+    private IndexBatchWriter indexBatchWriter;
+
+    public void register(CrawlFrontier frontier) {
+        active.put(frontier.getSiteUrl(), frontier);
+    }
+
+    /**
+     * Снимает сайт с периодического сохранения. Если обход завершён, контрольная
+     * точка удаляется, иначе сохраняется последнее состояние очереди.
+     */
+    public void unregister(CrawlFrontier frontier, boolean completed) {
+        active.remove(frontier.getSiteUrl());
+        if (completed) {
+            delete(frontier.getSiteUrl());
+        } else {
+            CrawlFrontier.Snapshot snapshot = frontier.snapshot();
+            if (flushLemmas()) {
+                save(snapshot);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${crawler-settings.checkpoint-interval-ms:30000}")
+    public void checkpointAll() {
+        // Снимки берём до сброса буфера: леммы страницы попадают в буфер раньше,
+        // чем она отмечается обработанной, поэтому сброс допишет леммы всех
+        // страниц, обработанных в снимке
+        List<CrawlFrontier.Snapshot> snapshots = active.values().stream().map(CrawlFrontier::snapshot).toList();
+        if (!snapshots.isEmpty() && flushLemmas()) {
+            snapshots.forEach(this::save);
+        }
+    }
+
+    public Optional<CrawlFrontier> load(String siteUrl) {
+        Path file = fileFor(siteUrl);
+        if (!Files.exists(file)) {
+            return Optional.empty();
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(file))))) {
+            int version = in.readInt() == MAGIC ? in.readInt() : -1;
+            if (version != VERSION && version != VERSION_UTF) {
+                logger.warn("Неизвестный формат контрольной точки: {}", file);
+                return Optional.empty();
+            }
+            boolean utf = version == VERSION_UTF;
+            String storedUrl = readString(in, utf);
+            if (!storedUrl.equals(siteUrl)) {
+                logger.warn("Контрольная точка {} относится к другому сайту: {}", file, storedUrl);
+                return Optional.empty();
+            }
+            List<String> visited = readUrls(in, utf);
+            List<String> pending = readUrls(in, utf);
+            if (pending.isEmpty()) {
+                return Optional.empty();
+            }
+            return Optional.of(CrawlFrontier.restore(siteUrl, visited, pending));
+        } catch (IOException e) {
+            logger.warn("Не удалось прочитать контрольную точку {}: {}", file, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    public void delete(String siteUrl) {
+        try {
+            Files.deleteIfExists(fileFor(siteUrl));
+        } catch (IOException e) {
+            logger.warn("Не удалось удалить контрольную точку сайта {}: {}", siteUrl, e.getMessage());
+        }
+    }
+
+    /**
+     * @return false, если леммы не записаны: тогда остаётся предыдущая контрольная точка
+     */
+    private boolean flushLemmas() {
+        try {
+            indexBatchWriter.flush();
+            return true;
+        } catch (DataAccessException e) {
+            logger.warn("Контрольные точки не сохранены: не удалось записать леммы обработанных страниц: {}",
+                    e.getMessage());
+            return false;
+        }
+    }
+
+    private void save(CrawlFrontier.Snapshot snapshot) {
+        Path file = fileFor(snapshot.siteUrl());
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(file.getParent());
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new GZIPOutputStream(Files.newOutputStream(tmp))))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                writeString(out, snapshot.siteUrl());
+                writeUrls(out, snapshot.visited());
+                writeUrls(out, snapshot.pending());
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.debug("Контрольная точка сайта {}: {} обработано, {} в очереди",
+                    snapshot.siteUrl(), snapshot.visited().size(), snapshot.pending().size());
+        } catch (IOException e) {
+            logger.warn("Не удалось сохранить контрольную точку сайта {}: {}", snapshot.siteUrl(), e.getMessage());
+        }
+    }
+
+    // Отсортированные адреса с общими префиксами хорошо сжимаются gzip
+    private static void writeUrls(DataOutputStream out, List<String> urls) throws IOException {
+        List<String> sorted = new ArrayList<>(urls);
+        Collections.sort(sorted);
+        out.writeInt(sorted.size());
+        for (String url : sorted) {
+            writeString(out, url);
+        }
+    }
+
+    private static List<String> readUrls(DataInputStream in, boolean utf) throws IOException {
+        int size = in.readInt();
+        List<String> urls = new ArrayList<>(Math.min(size, 1 << 16));
+        for (int i = 0; i < size; i++) {
+            urls.add(readString(in, utf));
+        }
+        return urls;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in, boolean utf) throws IOException {
+        if (utf) {
+            return in.readUTF();
+        }
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("Отрицательная длина адреса: " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private Path fileFor(String siteUrl) {
+        String name = UUID.nameUUIDFromBytes(siteUrl.getBytes(StandardCharsets.UTF_8)) + ".frontier";
+        return Path.of(crawlerSettings.getCheckpointDir()).resolve(name);
+    }
+}
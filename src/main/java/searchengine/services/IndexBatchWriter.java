@@ -0,0 +1,260 @@
+package searchengine.services;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import searchengine.config.BatchIndexingSettings;
+import searchengine.config.SearchSettings;
+import searchengine.services.search.PositionCodec;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Общий буфер записи лемм и индекса. Страницы от краулера и от /api/indexPages
+ * складываются сюда, а в базу уходят крупными пакетами: один upsert по lemma
+ * и одна пакетная вставка в index на много страниц сразу.
+ * <p>
+ * Пакет пишется в одной транзакции. Если запись не удалась, об ошибке узнаёт
+ * каждый владелец страниц пакета через свой onFailure, а не только поток,
+ * которому выпало сбрасывать буфер.
+ */
+@Component
+public class IndexBatchWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(IndexBatchWriter.class);
+    private static final int LOOKUP_CHUNK = 500;
+
+    private final List<PageLemmas> pending = new ArrayList<>();
+    private int pendingRows;
+    // Пакеты пишутся строго по одному: параллельные upsert по одним и тем же леммам взаимно блокируются в InnoDB.
+    // ReentrantLock, а не монитор: пишут и виртуальные потоки /api/indexPages, и на время записи
+    // в базу synchronized прикрепил бы их к потоку-носителю
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private IndexingMetrics metrics;
+
+    @Autowired
+    private SiteStatisticsRegistry statisticsRegistry;
+
+    @Autowired
+    private BatchIndexingSettings settings;
+
+    @Autowired
+    private SearchSettings searchSettings;
+
+    @Autowired
+    private SuggestionService suggestionService;
+
+    @Autowired
+    private ShardedSearchIndex searchIndex;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * Ставит леммы страницы в очередь; если буфер заполнен, пакет пишет вызывающий поток.
+     *
+     * @param lemmas позиции каждой леммы на странице, см. {@link searchengine.LemmaExtractor#getLemmaPositions}
+     */
+    public void add(int siteId, int pageId, Map<String, int[]> lemmas) {
+        add(siteId, pageId, lemmas, null);
+    }
+
+    /**
+     * @param onFailure вызывается, если пакет с этой страницей не удалось записать; null — только запись в журнал
+     * @throws DataAccessException пакет, который пришлось писать этому потоку, не записан
+     */
+    public void add(int siteId, int pageId, Map<String, int[]> lemmas, Consumer<DataAccessException> onFailure) {
+        if (lemmas.isEmpty()) {
+            return;
+        }
+        boolean full;
+        synchronized (pending) {
+            pending.add(new PageLemmas(siteId, pageId, lemmas, onFailure));
+            pendingRows += lemmas.size();
+            full = pendingRows >= settings.getWriteBatchSize();
+        }
+        if (full) {
+            flush();
+        }
+    }
+
+    /**
+     * Пишет всё, что лежит в буфере. Буфер разбирается только под writeLock,
+     * поэтому после возврата записаны и пакеты, которые уже писали другие потоки.
+     *
+     * @throws DataAccessException пакет не записан; владельцы его страниц уже получили onFailure
+     */
+    public void flush() {
+        writeLock.lock();
+        try {
+            List<PageLemmas> batch;
+            synchronized (pending) {
+                batch = drain();
+            }
+            if (!batch.isEmpty()) {
+                write(batch);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Есть ли у страницы строки индекса, с учётом лемм, которые ещё в буфере
+     * или пишутся другим потоком.
+     */
+    public boolean isIndexed(int pageId) {
+        writeLock.lock();
+        try {
+            flush();
+            return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                    "SELECT EXISTS(SELECT 1 FROM `index` WHERE page_id = ?)", Boolean.class, pageId));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Убирает страницу из индекса перед повторной индексацией: уменьшает frequency
+     * её лемм и удаляет леммы, которые больше не встречаются на сайте.
+     */
+    public void removePage(int siteId, int pageId) {
+        // Леммы этой страницы могут ещё лежать в буфере
+        flush();
+        writeLock.lock();
+        try {
+            jdbcTemplate.update("UPDATE lemma l JOIN `index` i ON i.lemma_id = l.id " +
+                    "SET l.frequency = l.frequency - 1 WHERE i.page_id = ?", pageId);
+            jdbcTemplate.update("DELETE FROM `index` WHERE page_id = ?", pageId);
+            int removed = jdbcTemplate.update("DELETE FROM lemma WHERE site_id = ? AND frequency <= 0", siteId);
+            statisticsRegistry.lemmasAdded(siteId, -removed);
+            searchIndex.markStale(siteId);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private List<PageLemmas> drain() {
+        List<PageLemmas> batch = new ArrayList<>(pending);
+        pending.clear();
+        pendingRows = 0;
+        return batch;
+    }
+
+    private void write(List<PageLemmas> batch) {
+        // frequency леммы — число страниц сайта, на которых она встречается
+        Map<Integer, Map<String, Integer>> frequencies = new HashMap<>();
+        for (PageLemmas page : batch) {
+            Map<String, Integer> siteLemmas = frequencies.computeIfAbsent(page.siteId(), id -> new TreeMap<>());
+            page.lemmas().keySet().forEach(lemma -> siteLemmas.merge(lemma, 1, Integer::sum));
+        }
+        Map<Integer, Integer> insertedLemmas;
+        try {
+            insertedLemmas = new TransactionTemplate(transactionManager).execute(status -> writeRows(batch, frequencies));
+        } catch (DataAccessException e) {
+            logger.error("Не удалось записать пакет лемм ({} страниц), транзакция отменена", batch.size(), e);
+            for (PageLemmas page : batch) {
+                if (page.onFailure() != null) {
+                    page.onFailure().accept(e);
+                }
+            }
+            throw e;
+        }
+        // Счётчики и подсказки обновляем только после фиксации транзакции
+        insertedLemmas.forEach((siteId, count) -> statisticsRegistry.lemmasAdded(siteId, count));
+        frequencies.forEach(suggestionService::lemmasIndexed);
+    }
+
+    /**
+     * @return сколько новых лемм добавлено на каждом сайте
+     */
+    private Map<Integer, Integer> writeRows(List<PageLemmas> batch, Map<Integer, Map<String, Integer>> frequencies) {
+        Map<Integer, Integer> inserted = new HashMap<>();
+        Map<Integer, Map<String, Integer>> lemmaIds = new HashMap<>();
+        for (Map.Entry<Integer, Map<String, Integer>> site : frequencies.entrySet()) {
+            inserted.put(site.getKey(), upsertLemmas(site.getKey(), site.getValue()));
+            searchIndex.markStale(site.getKey());
+            lemmaIds.put(site.getKey(), findLemmaIds(site.getKey(), new ArrayList<>(site.getValue().keySet())));
+        }
+
+        boolean positional = searchSettings.isPositionalIndex();
+        List<Object[]> rows = new ArrayList<>();
+        for (PageLemmas page : batch) {
+            Map<String, Integer> ids = lemmaIds.get(page.siteId());
+            page.lemmas().forEach((lemma, positions) -> {
+                Integer lemmaId = ids.get(lemma);
+                if (lemmaId != null) {
+                    rows.add(new Object[]{page.pageId(), lemmaId, (float) positions.length,
+                            positional ? PositionCodec.encode(positions) : null});
+                }
+            });
+        }
+        long start = System.nanoTime();
+        jdbcTemplate.batchUpdate("INSERT INTO `index` (page_id, lemma_id, `rank`, positions) VALUES (?, ?, ?, ?)", rows);
+        metrics.batchFlushed("index", rows.size(), System.nanoTime() - start);
+        logger.debug("Записано {} страниц, {} строк индекса", batch.size(), rows.size());
+        return inserted;
+    }
+
+    private int upsertLemmas(int siteId, Map<String, Integer> frequencies) {
+        // Леммы отсортированы (TreeMap): строки блокируются в одном порядке
+        List<Object[]> rows = new ArrayList<>(frequencies.size());
+        frequencies.forEach((lemma, pages) -> rows.add(new Object[]{siteId, lemma, pages}));
+        long start = System.nanoTime();
+        int[] counts = jdbcTemplate.batchUpdate("INSERT INTO lemma (site_id, lemma, frequency) VALUES (?, ?, ?) " +
+                "ON DUPLICATE KEY UPDATE frequency = frequency + VALUES(frequency)", rows);
+        metrics.batchFlushed("lemma", rows.size(), System.nanoTime() - start);
+
+        // MySQL возвращает 1 для вставленной строки и 2 для обновлённой
+        int inserted = 0;
+        for (int count : counts) {
+            if (count == 1) {
+                inserted++;
+            }
+        }
+        return inserted;
+    }
+
+    private Map<String, Integer> findLemmaIds(int siteId, List<String> lemmas) {
+        Map<String, Integer> ids = new HashMap<>(lemmas.size() * 2);
+        for (int from = 0; from < lemmas.size(); from += LOOKUP_CHUNK) {
+            List<String> chunk = lemmas.subList(from, Math.min(from + LOOKUP_CHUNK, lemmas.size()));
+            String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+            List<Object> args = new ArrayList<>(chunk.size() + 1);
+            args.add(siteId);
+            args.addAll(chunk);
+            jdbcTemplate.query("SELECT id, lemma FROM lemma WHERE site_id = ? AND lemma IN (" + placeholders + ")",
+                    rs -> {
+                        ids.put(rs.getString("lemma"), rs.getInt("id"));
+                    }, args.toArray());
+        }
+        return ids;
+    }
+
+    private record PageLemmas(int siteId, int pageId, Map<String, int[]> lemmas,
+                              Consumer<DataAccessException> onFailure) {
+    }
+}
@@ -3,8 +3,12 @@ package searchengine.services;
 import searchengine.model.Index;
 import searchengine.repository.IndexRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.List;
 
 @Service
@@ -13,12 +17,44 @@ public class IndexService {
     @Autowired
     private IndexRepository indexRepository;
 
+    @Autowired
+    private NdjsonExporter ndjsonExporter;
+
     public Index saveIndex(Index index) {
         return indexRepository.save(index);
     }
 
-    public List<Index> getAllIndexes() {
-        return indexRepository.findAll();
+    public List<Index> getIndexesPage(int afterId, int limit, Integer pageId, Integer siteId, String lemma) {
+        return indexRepository.findPage(afterId, pageId, siteId, lemma, PageRequest.ofSize(limit));
+    }
+
+    public void streamIndexes(Integer pageId, Integer siteId, String lemma, OutputStream out) throws IOException {
+        StringBuilder sql = new StringBuilder("SELECT i.id, i.page_id, i.lemma_id, i.`rank` FROM `index` i");
+        List<Object> args = new ArrayList<>();
+        if (siteId != null || lemma != null) {
+            sql.append(" JOIN lemma l ON l.id = i.lemma_id");
+        }
+        sql.append(" WHERE 1 = 1");
+        if (pageId != null) {
+            sql.append(" AND i.page_id = ?");
+            args.add(pageId);
+        }
+        if (siteId != null) {
+            sql.append(" AND l.site_id = ?");
+            args.add(siteId);
+        }
+        if (lemma != null) {
+            sql.append(" AND l.lemma = ?");
+            args.add(lemma);
+        }
+        ndjsonExporter.export(sql.toString(), args.toArray(), (rs, rowNum) -> {
+            Index row = new Index();
+            row.setId(rs.getInt("id"));
+            row.setPageId(rs.getInt("page_id"));
+            row.setLemmaId(rs.getInt("lemma_id"));
+            row.setRank(rs.getFloat("rank"));
+            return row;
+        }, out);
     }
 
     public Index getIndexById(int id) {
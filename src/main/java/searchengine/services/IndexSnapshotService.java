@@ -0,0 +1,545 @@
+package searchengine.services;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.UncategorizedSQLException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import searchengine.services.search.IndexShard;
+import searchengine.services.search.PostingList;
+import searchengine.services.snapshot.SnapshotReader;
+import searchengine.services.snapshot.SnapshotSink;
+import searchengine.services.snapshot.SnapshotWriter;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Снимок индекса для быстрого ввода нового узла: таблицы site, page, lemma
+ * и index выгружаются в один двоичный файл и загружаются обратно без обхода
+ * сайтов и лемматизации. Формат описан в {@link SnapshotWriter}.
+ */
+@Service
+public class IndexSnapshotService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IndexSnapshotService.class);
+    private static final int ROWS_PER_INSERT = 1000;
+    // Страницы крупные: держим INSERT заметно меньше max_allowed_packet
+    private static final long MAX_INSERT_BYTES = 4L * 1024 * 1024;
+    // Вторичные индексы таблицы index: без них вставка идёт заметно быстрее
+    private static final Map<String, String> SECONDARY_INDEXES = Map.of(
+            "idx_index_page", "page_id",
+            "idx_index_lemma", "lemma_id");
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private SiteStatisticsRegistry statisticsRegistry;
+
+    @Autowired
+    private ShardedSearchIndex searchIndex;
+
+    @Autowired
+    private SuggestionService suggestionService;
+
+    @Autowired
+    private IndexingGuard indexingGuard;
+
+    @Autowired
+    private IndexBatchWriter indexBatchWriter;
+
+    private JdbcTemplate streamingJdbcTemplate;
+
+    @PostConstruct
+    public void init() {
+        streamingJdbcTemplate = new JdbcTemplate(dataSource);
+        streamingJdbcTemplate.setFetchSize(Integer.MIN_VALUE);
+    }
+
+    /**
+     * Пишет снимок в поток. Все таблицы читаются в одной транзакции
+     * REPEATABLE READ, поэтому снимок согласован даже во время индексации.
+     */
+    public void export(OutputStream target) throws IOException {
+        long start = System.nanoTime();
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        transaction.setReadOnly(true);
+        try (SnapshotWriter writer = new SnapshotWriter(target, System.currentTimeMillis())) {
+            Counts counts = transaction.execute(status -> {
+                Counts written = new Counts();
+                written.sites = writeSites(writer);
+                written.lemmas = writeLemmas(writer);
+                written.pages = writePages(writer);
+                written.postings = writeIndex(writer);
+                return written;
+            });
+            logger.info("Снимок индекса выгружен: {} сайтов, {} страниц, {} лемм, {} записей индекса за {} мс",
+                    counts.sites, counts.pages, counts.lemmas, counts.postings, (System.nanoTime() - start) / 1_000_000);
+        } catch (DataAccessResourceFailureException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Заменяет содержимое таблиц site, page, lemma и index снимком и сразу
+     * строит из него шарды поискового индекса.
+     * <p>
+     * Снимок сначала сохраняется во временный файл и целиком проверяется,
+     * и только потом таблицы очищаются: битый или оборванный файл не трогает
+     * данные. Если загрузка всё же упала после очистки, шарды, статистика
+     * и подсказки перечитываются из того, что осталось в базе.
+     *
+     * @throws IOException           поток не является снимком или обрывается
+     * @throws IllegalStateException идёт индексация, индексация отдельных страниц или другая загрузка снимка
+     */
+    public Map<String, Object> importSnapshot(InputStream source) throws IOException {
+        if (!indexingGuard.tryAcquireExclusive(IndexingGuard.SNAPSHOT_IMPORT)) {
+            String activity = indexingGuard.getActivity();
+            throw new IllegalStateException((activity != null ? activity : "Индексация страниц")
+                    + " уже запущена, загрузка снимка невозможна");
+        }
+        long start = System.nanoTime();
+        Path spool = null;
+        boolean[] truncated = {false};
+        boolean installed = false;
+        try {
+            spool = Files.createTempFile("index-", ".snapshot");
+            Files.copy(source, spool, StandardCopyOption.REPLACE_EXISTING);
+            long createdAt;
+            try (InputStream in = Files.newInputStream(spool)) {
+                createdAt = SnapshotReader.read(in, new SnapshotSink() {
+                });
+            }
+
+            // Новых лемм в буфер уже не добавят: все, кто пишет индекс, исключены охраной.
+            // Оставшиеся дописываем до очистки таблиц, иначе они ушли бы в базу уже после
+            // загрузки снимка и сослались бы на чужие lemma_id и page_id
+            try {
+                indexBatchWriter.flush();
+            } catch (DataAccessException e) {
+                logger.warn("Не удалось дописать буфер лемм перед загрузкой снимка: {}", e.getMessage());
+            }
+
+            Path validated = spool;
+            Map<Integer, Map<String, PostingList.Builder>> builders = new HashMap<>();
+            Counts counts;
+            try {
+                counts = jdbcTemplate.execute((ConnectionCallback<Counts>) connection -> {
+                    try {
+                        return load(connection, validated, builders, truncated);
+                    } catch (IOException e) {
+                        throw new DataAccessResourceFailureException("Ошибка чтения снимка", e);
+                    }
+                });
+            } catch (DataAccessResourceFailureException e) {
+                if (e.getCause() instanceof IOException io) {
+                    throw io;
+                }
+                throw e;
+            }
+
+            Map<Integer, IndexShard> shards = new HashMap<>();
+            builders.forEach((siteId, lemmas) -> {
+                Map<String, PostingList> postings = new HashMap<>(lemmas.size() * 2);
+                lemmas.forEach((lemma, builder) -> postings.put(lemma, builder.build()));
+                shards.put(siteId, new IndexShard(siteId, postings));
+            });
+            searchIndex.install(shards);
+            installed = true;
+            statisticsRegistry.reload();
+            suggestionService.rebuild();
+
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            logger.info("Загружен снимок индекса от {}: {} сайтов, {} страниц, {} лемм, {} записей индекса за {} мс",
+                    new Timestamp(createdAt), counts.sites, counts.pages, counts.lemmas, counts.postings, millis);
+            Map<String, Object> result = new HashMap<>();
+            result.put("result", true);
+            result.put("sites", counts.sites);
+            result.put("pages", counts.pages);
+            result.put("lemmas", counts.lemmas);
+            result.put("indexRows", counts.postings);
+            result.put("millis", millis);
+            return result;
+        } finally {
+            if (truncated[0] && !installed) {
+                reloadAfterFailedImport();
+            }
+            if (spool != null) {
+                try {
+                    Files.deleteIfExists(spool);
+                } catch (IOException e) {
+                    logger.warn("Не удалось удалить временный файл снимка {}: {}", spool, e.getMessage());
+                }
+            }
+            indexingGuard.release(IndexingGuard.SNAPSHOT_IMPORT);
+        }
+    }
+
+    /**
+     * Таблицы очищены, но снимок не загружен: шарды и кэши больше не
+     * соответствуют базе, перечитываем их из неё.
+     */
+    private void reloadAfterFailedImport() {
+        try {
+            searchIndex.reloadAll();
+            statisticsRegistry.reload();
+            suggestionService.rebuild();
+        } catch (RuntimeException e) {
+            logger.error("Не удалось перечитать индекс после неудачной загрузки снимка", e);
+        }
+    }
+
+    private long writeSites(SnapshotWriter writer) {
+        long[] count = {0};
+        streamingJdbcTemplate.query("SELECT id, status, status_time, last_error, url, name, page_count, lemma_count " +
+                "FROM site ORDER BY id", rs -> {
+            Timestamp statusTime = rs.getTimestamp("status_time");
+            SnapshotSink.SiteRow site = new SnapshotSink.SiteRow(rs.getInt("id"), rs.getString("status"),
+                    statusTime != null ? statusTime.getTime() : null, rs.getString("last_error"),
+                    rs.getString("url"), rs.getString("name"), rs.getLong("page_count"), rs.getLong("lemma_count"));
+            write(() -> writer.site(site));
+            count[0]++;
+        });
+        write(writer::endSites);
+        return count[0];
+    }
+
+    /**
+     * Сначала словарь всех различных лемм, затем строки lemma. Различие
+     * определяется в Java, а не DISTINCT: сравнение в MySQL зависит от
+     * collation и может склеить разные строки.
+     */
+    private long writeLemmas(SnapshotWriter writer) {
+        TreeSet<String> dictionary = new TreeSet<>();
+        streamingJdbcTemplate.query("SELECT lemma FROM lemma", rs -> {
+            dictionary.add(rs.getString(1));
+        });
+        write(() -> writer.dictionary(dictionary));
+
+        long[] count = {0};
+        streamingJdbcTemplate.query("SELECT id, site_id, lemma, frequency FROM lemma ORDER BY id", rs -> {
+            SnapshotSink.LemmaRow lemma = new SnapshotSink.LemmaRow(rs.getInt("id"), rs.getInt("site_id"),
+                    rs.getString("lemma"), rs.getInt("frequency"));
+            write(() -> writer.lemma(lemma));
+            count[0]++;
+        });
+        write(writer::endLemmas);
+        return count[0];
+    }
+
+    private long writePages(SnapshotWriter writer) {
+        long[] count = {0};
+        streamingJdbcTemplate.query("SELECT id, site_id, path, code, content, content_codec, text, simhash, duplicate_of " +
+                "FROM page ORDER BY id", rs -> {
+            SnapshotSink.PageRow page = new SnapshotSink.PageRow(rs.getInt("id"), rs.getInt("site_id"),
+                    rs.getString("path"), rs.getInt("code"), rs.getString("content_codec"), rs.getBytes("content"),
+                    rs.getBytes("text"), rs.getObject("simhash", Long.class), rs.getObject("duplicate_of", Integer.class));
+            write(() -> writer.page(page));
+            count[0]++;
+        });
+        write(writer::endPages);
+        return count[0];
+    }
+
+    private long writeIndex(SnapshotWriter writer) {
+        long[] count = {0};
+        streamingJdbcTemplate.query("SELECT lemma_id, page_id, `rank`, positions FROM `index` " +
+                "ORDER BY lemma_id, page_id", rs -> {
+            SnapshotSink.PostingRow posting = new SnapshotSink.PostingRow(rs.getInt(1), rs.getInt(2),
+                    rs.getFloat(3), rs.getBytes(4));
+            write(() -> writer.posting(posting));
+            count[0]++;
+        });
+        write(writer::endIndex);
+        return count[0];
+    }
+
+    /**
+     * Загрузка проверенного снимка в одном соединении. InnoDB не умеет
+     * DISABLE KEYS, поэтому вторичные индексы таблицы index удаляются на время
+     * вставки и создаются заново, а проверки уникальности и внешних ключей
+     * отключаются для сессии. TRUNCATE и ALTER TABLE завершают транзакцию
+     * неявно, так что при ошибке таблицы остаются пустыми или частично
+     * заполненными; truncated[0] сообщает об этом вызывающему.
+     */
+    private Counts load(Connection connection, Path spool, Map<Integer, Map<String, PostingList.Builder>> builders,
+                        boolean[] truncated) throws SQLException, IOException {
+        boolean autoCommit = connection.getAutoCommit();
+        List<String> dropped = new ArrayList<>();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SET unique_checks = 0");
+            statement.execute("SET foreign_key_checks = 0");
+            try {
+                truncated[0] = true;
+                for (String table : List.of("`index`", "lemma", "page", "site")) {
+                    statement.execute("TRUNCATE TABLE " + table);
+                }
+                for (String name : SECONDARY_INDEXES.keySet()) {
+                    if (indexExists(connection, name)) {
+                        statement.execute("ALTER TABLE `index` DROP INDEX " + name);
+                        dropped.add(name);
+                    }
+                }
+                connection.setAutoCommit(false);
+                DatabaseSink sink = new DatabaseSink(connection, builders);
+                try (InputStream in = Files.newInputStream(spool); sink) {
+                    SnapshotReader.read(in, sink);
+                }
+                connection.commit();
+                return sink.counts();
+            } catch (SQLException | IOException | RuntimeException e) {
+                if (!connection.getAutoCommit()) {
+                    connection.rollback();
+                }
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+                for (String name : dropped) {
+                    statement.execute("ALTER TABLE `index` ADD INDEX " + name + " (" + SECONDARY_INDEXES.get(name) + ")");
+                }
+                statement.execute("SET unique_checks = 1");
+                statement.execute("SET foreign_key_checks = 1");
+            }
+        }
+    }
+
+    private static boolean indexExists(Connection connection, String name) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT COUNT(*) FROM information_schema.statistics " +
+                "WHERE table_schema = DATABASE() AND table_name = 'index' AND index_name = ?")) {
+            statement.setString(1, name);
+            try (var rs = statement.executeQuery()) {
+                return rs.next() && rs.getInt(1) > 0;
+            }
+        }
+    }
+
+    private static void write(SnapshotWrite action) {
+        try {
+            action.run();
+        } catch (IOException e) {
+            // клиент закрыл соединение — прекращаем чтение курсора
+            throw new DataAccessResourceFailureException("Ошибка записи снимка", e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface SnapshotWrite {
+        void run() throws IOException;
+    }
+
+    private record LemmaRef(int siteId, String lemma) {
+    }
+
+    private static class Counts {
+        long sites;
+        long pages;
+        long lemmas;
+        long postings;
+    }
+
+    /**
+     * Вставляет строки снимка в таблицы и собирает из записей индекса шарды.
+     * Ошибки SQL выходят как UncategorizedSQLException: SnapshotSink
+     * объявляет только IOException.
+     */
+    private static class DatabaseSink implements SnapshotSink, AutoCloseable {
+        private final Map<Integer, Map<String, PostingList.Builder>> builders;
+        private final Map<Integer, LemmaRef> lemmas = new HashMap<>();
+        private final BulkInsert sites;
+        private final BulkInsert lemmaRows;
+        private final BulkInsert pages;
+        private final BulkInsert postings;
+
+        DatabaseSink(Connection connection, Map<Integer, Map<String, PostingList.Builder>> builders) {
+            this.builders = builders;
+            this.sites = new BulkInsert(connection, "site",
+                    "id, status, status_time, last_error, url, name, page_count, lemma_count");
+            this.lemmaRows = new BulkInsert(connection, "lemma", "id, site_id, lemma, frequency");
+            this.pages = new BulkInsert(connection, "page",
+                    "id, site_id, path, code, content_codec, content, text, simhash, duplicate_of");
+            this.postings = new BulkInsert(connection, "`index`", "lemma_id, page_id, `rank`, positions");
+        }
+
+        @Override
+        public void site(SiteRow site) {
+            add(sites, site.id(), site.status(), site.statusTime() != null ? new Timestamp(site.statusTime()) : null,
+                    site.lastError(), site.url(), site.name(), site.pageCount(), site.lemmaCount());
+            // У сайта без записей индекса шард всё равно есть, пустой
+            builders.put(site.id(), new HashMap<>());
+        }
+
+        @Override
+        public void lemma(LemmaRow lemma) {
+            add(lemmaRows, lemma.id(), lemma.siteId(), lemma.lemma(), lemma.frequency());
+            lemmas.put(lemma.id(), new LemmaRef(lemma.siteId(), lemma.lemma()));
+        }
+
+        @Override
+        public void page(PageRow page) {
+            add(pages, page.id(), page.siteId(), page.path(), page.code(), page.contentCodec(), page.content(),
+                    page.text(), page.simhash(), page.duplicateOf());
+        }
+
+        @Override
+        public void posting(PostingRow posting) {
+            add(postings, posting.lemmaId(), posting.pageId(), posting.rank(), posting.positions());
+            LemmaRef lemma = lemmas.get(posting.lemmaId());
+            if (lemma == null) {
+                // SnapshotReader проверяет ссылки ещё при проверке снимка; сюда можно попасть,
+                // только если файл изменился между проходами
+                throw new IOException("Снимок повреждён: нет леммы " + posting.lemmaId());
+            }
+            builders.computeIfAbsent(lemma.siteId(), id -> new HashMap<>())
+                    .computeIfAbsent(lemma.lemma(), key -> new PostingList.Builder())
+                    .add(posting.pageId(), posting.rank(), posting.positions());
+        }
+
+        Counts counts() {
+            Counts counts = new Counts();
+            counts.sites = sites.count();
+            counts.lemmas = lemmaRows.count();
+            counts.pages = pages.count();
+            counts.postings = postings.count();
+            return counts;
+        }
+
+        @Override
+        public void close() throws SQLException {
+            // Секции в снимке идут по порядку, так что остатки сбрасываются в том же порядке
+            try (sites; lemmaRows; pages; postings) {
+                sites.flush();
+                lemmaRows.flush();
+                pages.flush();
+                postings.flush();
+            }
+        }
+
+        private static void add(BulkInsert insert, Object... values) {
+            try {
+                insert.add(values);
+            } catch (SQLException e) {
+                throw new UncategorizedSQLException("Загрузка снимка индекса", null, e);
+            }
+        }
+    }
+
+    /**
+     * Многострочные INSERT по ROWS_PER_INSERT строк (или меньше, если строки
+     * занимают больше MAX_INSERT_BYTES) с сохранением исходных id.
+     * rewriteBatchedStatements не включаем: IndexBatchWriter полагается на
+     * счётчики обычного batch.
+     */
+    private static class BulkInsert implements AutoCloseable {
+        private final Connection connection;
+        private final String table;
+        private final String columns;
+        private final int columnCount;
+        private final List<Object[]> rows = new ArrayList<>(ROWS_PER_INSERT);
+        private PreparedStatement fullStatement;
+        private long bytes;
+        private long count;
+
+        BulkInsert(Connection connection, String table, String columns) {
+            this.connection = connection;
+            this.table = table;
+            this.columns = columns;
+            this.columnCount = columns.split(",").length;
+        }
+
+        void add(Object... values) throws SQLException {
+            rows.add(values);
+            for (Object value : values) {
+                if (value instanceof byte[] data) {
+                    bytes += data.length;
+                } else if (value instanceof String text) {
+                    bytes += text.length() * 2L;
+                }
+            }
+            if (rows.size() == ROWS_PER_INSERT || bytes >= MAX_INSERT_BYTES) {
+                flush();
+            }
+        }
+
+        long count() {
+            return count;
+        }
+
+        private void flush() throws SQLException {
+            if (rows.isEmpty()) {
+                return;
+            }
+            boolean full = rows.size() == ROWS_PER_INSERT;
+            if (full && fullStatement == null) {
+                fullStatement = connection.prepareStatement(sql(ROWS_PER_INSERT));
+            }
+            PreparedStatement statement = full ? fullStatement : connection.prepareStatement(sql(rows.size()));
+            try {
+                int parameter = 1;
+                for (Object[] row : rows) {
+                    for (Object value : row) {
+                        statement.setObject(parameter++, value);
+                    }
+                }
+                statement.executeUpdate();
+            } finally {
+                if (!full) {
+                    statement.close();
+                }
+            }
+            count += rows.size();
+            rows.clear();
+            bytes = 0;
+        }
+
+        private String sql(int rowCount) {
+            String row = "(" + String.join(", ", Collections.nCopies(columnCount, "?")) + ")";
+            return "INSERT INTO " + table + " (" + columns + ") VALUES " + String.join(", ", Collections.nCopies(rowCount, row));
+        }
+
+        @Override
+        public void close() throws SQLException {
+            try {
+                flush();
+            } finally {
+                if (fullStatement != null) {
+                    fullStatement.close();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package searchengine.services;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Общий флаг операций, переписывающих индекс целиком: полная индексация
+ * и загрузка снимка не должны идти одновременно.
+ * <p>
+ * Индексация отдельных страниц (/api/indexPage, /api/indexPages) идёт
+ * параллельно с полной индексацией, но не с операцией, взятой через
+ * {@link #tryAcquireExclusive}: та очищает таблицы, и записанные в это
+ * время страницы и леммы ссылались бы на удалённые строки.
+ */
+@Component
+public class IndexingGuard {
+
+    public static final String INDEXING = "Индексация";
+    public static final String SNAPSHOT_IMPORT = "Загрузка снимка индекса";
+
+    private final AtomicReference<String> activity = new AtomicReference<>();
+    private final AtomicInteger pageWriters = new AtomicInteger();
+    private volatile boolean exclusive;
+
+    /**
+     * @return false, если уже идёт другая операция
+     */
+    public boolean tryAcquire(String name) {
+        return activity.compareAndSet(null, name);
+    }
+
+    /**
+     * Как {@link #tryAcquire}, но отказывает и пока индексируются отдельные
+     * страницы, а новые не пускает до {@link #release}.
+     *
+     * @return false, если идёт другая операция или индексация страниц
+     */
+    public boolean tryAcquireExclusive(String name) {
+        if (!activity.compareAndSet(null, name)) {
+            return false;
+        }
+        // Порядок важен: сначала объявляем исключительный режим, потом смотрим на счётчик,
+        // а tryAcquirePageWrite делает наоборот, так что хотя бы одна сторона увидит другую
+        exclusive = true;
+        if (pageWriters.get() > 0) {
+            release(name);
+            return false;
+        }
+        return true;
+    }
+
+    public void release(String name) {
+        if (name.equals(activity.get())) {
+            exclusive = false;
+        }
+        activity.compareAndSet(name, null);
+    }
+
+    /**
+     * Разрешение на индексацию отдельных страниц; освобождается через {@link #releasePageWrite}.
+     *
+     * @return false, если идёт операция, взятая через {@link #tryAcquireExclusive}
+     */
+    public boolean tryAcquirePageWrite() {
+        pageWriters.incrementAndGet();
+        if (exclusive) {
+            pageWriters.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    public void releasePageWrite() {
+        pageWriters.decrementAndGet();
+    }
+
+    public boolean isHeldBy(String name) {
+        return name.equals(activity.get());
+    }
+
+    /**
+     * @return текущая операция или null
+     */
+    public String getActivity() {
+        return activity.get();
+    }
+}
@@ -0,0 +1,103 @@
+package searchengine.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Метрики краулера, записи в БД и поиска. Публикуются через /actuator/prometheus.
+ */
+@Component
+public class IndexingMetrics {
+
+    private final MeterRegistry registry;
+    private final AtomicInteger frontierSize;
+    private final Counter pagesCrawled;
+    private final Counter nearDuplicates;
+
+    public IndexingMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.frontierSize = registry.gauge("crawler.frontier.size", new AtomicInteger());
+        this.pagesCrawled = Counter.builder("crawler.pages")
+                .description("Сохранённые страницы")
+                .register(registry);
+        this.nearDuplicates = Counter.builder("crawler.pages.near_duplicate")
+                .description("Страницы, сохранённые без лемматизации как почти дубликаты")
+                .register(registry);
+    }
+
+    public Timer.Sample startFetch() {
+        return Timer.start(registry);
+    }
+
+    public void fetchCompleted(Timer.Sample sample, String host, int statusCode) {
+        sample.stop(Timer.builder("crawler.fetch")
+                .description("Время загрузки страницы")
+                .tag("host", host)
+                .publishPercentileHistogram()
+                .register(registry));
+        registry.counter("crawler.http.responses", "host", host, "status", String.valueOf(statusCode)).increment();
+    }
+
+    public void fetchFailed(Timer.Sample sample, String host, Throwable error) {
+        sample.stop(Timer.builder("crawler.fetch")
+                .tag("host", host)
+                .publishPercentileHistogram()
+                .register(registry));
+        registry.counter("crawler.http.errors", "host", host, "exception", error.getClass().getSimpleName()).increment();
+    }
+
+    public void pageCrawled() {
+        pagesCrawled.increment();
+    }
+
+    public void nearDuplicateSkipped() {
+        nearDuplicates.increment();
+    }
+
+    public void taskQueued() {
+        frontierSize.incrementAndGet();
+    }
+
+    public void taskStarted() {
+        frontierSize.decrementAndGet();
+    }
+
+    public void rowsWritten(String table, int rows) {
+        registry.counter("persistence.rows", "table", table).increment(rows);
+    }
+
+    /**
+     * @param scope all — запрос по всем сайтам, site — по одному
+     */
+    public void searchCompleted(String scope, long nanos) {
+        Timer.builder("search.latency")
+                .tag("scope", scope)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void shardTimedOut() {
+        registry.counter("search.shard.timeouts").increment();
+    }
+
+    public void batchFlushed(String table, int size, long nanos) {
+        DistributionSummary.builder("persistence.batch.size")
+                .tag("table", table)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(size);
+        Timer.builder("persistence.batch.flush")
+                .tag("table", table)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        rowsWritten(table, size);
+    }
+}
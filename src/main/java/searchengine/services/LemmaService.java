@@ -3,8 +3,12 @@ package searchengine.services;
 import searchengine.model.Lemma;
 import searchengine.repository.LemmaRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.List;
 
 @Service
@@ -13,12 +17,36 @@ public class LemmaService {
     @Autowired
     private LemmaRepository lemmaRepository;
 
+    @Autowired
+    private NdjsonExporter ndjsonExporter;
+
     public Lemma saveLemma(Lemma lemma) {
         return lemmaRepository.save(lemma);
     }
 
-    public List<Lemma> getAllLemmas() {
-        return lemmaRepository.findAll();
+    public List<Lemma> getLemmasPage(int afterId, int limit, Integer siteId, String lemma) {
+        return lemmaRepository.findPage(afterId, siteId, lemma, PageRequest.ofSize(limit));
+    }
+
+    public void streamLemmas(Integer siteId, String lemma, OutputStream out) throws IOException {
+        StringBuilder sql = new StringBuilder("SELECT id, site_id, lemma, frequency FROM lemma WHERE 1 = 1");
+        List<Object> args = new ArrayList<>();
+        if (siteId != null) {
+            sql.append(" AND site_id = ?");
+            args.add(siteId);
+        }
+        if (lemma != null) {
+            sql.append(" AND lemma = ?");
+            args.add(lemma);
+        }
+        ndjsonExporter.export(sql.toString(), args.toArray(), (rs, rowNum) -> {
+            Lemma row = new Lemma();
+            row.setId(rs.getInt("id"));
+            row.setSiteId(rs.getInt("site_id"));
+            row.setLemma(rs.getString("lemma"));
+            row.setFrequency(rs.getInt("frequency"));
+            return row;
+        }, out);
     }
 
     public Lemma getLemmaById(int id) {
@@ -0,0 +1,57 @@
+package searchengine.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Выгрузка результата запроса в NDJSON (один JSON-объект на строку) без
+ * накопления строк в памяти. Для MySQL fetchSize = Integer.MIN_VALUE включает
+ * потоковое чтение: драйвер отдаёт строки по одной через forward-only курсор.
+ */
+@Component
+public class NdjsonExporter {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private JdbcTemplate streamingJdbcTemplate;
+
+    @PostConstruct
+    public void init() {
+        streamingJdbcTemplate = new JdbcTemplate(dataSource);
+        streamingJdbcTemplate.setFetchSize(Integer.MIN_VALUE);
+    }
+
+    public <T> void export(String sql, Object[] args, RowMapper<T> mapper, OutputStream out) throws IOException {
+        try (SequenceWriter writer = objectMapper.writer().withRootValueSeparator("\n").writeValues(out)) {
+            streamingJdbcTemplate.query(sql, rs -> {
+                try {
+                    writer.write(mapper.mapRow(rs, rs.getRow()));
+                } catch (IOException e) {
+                    // клиент закрыл соединение — прекращаем чтение курсора
+                    throw new DataAccessResourceFailureException("Ошибка записи NDJSON", e);
+                }
+            }, args);
+            writer.flush();
+            out.write('\n');
+        } catch (DataAccessResourceFailureException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package searchengine.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import searchengine.config.CrawlerSettings;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Отпечатки SimHash уже проиндексированных страниц сайта на время его обхода.
+ * Отпечаток делится на четыре блока по 16 бит: если отпечатки отличаются
+ * не более чем в трёх битах, хотя бы один блок у них совпадает, поэтому
+ * сравнивать приходится только страницы с общим блоком.
+ */
+@Component
+public class NearDuplicateIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(NearDuplicateIndex.class);
+    private static final int BLOCKS = 4;
+
+    private final Map<Integer, SiteFingerprints> sites = new ConcurrentHashMap<>();
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CrawlerSettings crawlerSettings;
+
+    public boolean isEnabled() {
+        return crawlerSettings.getNearDuplicateDistance() >= 0;
+    }
+
+    /**
+     * Загружает отпечатки сохранённых страниц сайта; для нового сайта индекс пуст.
+     */
+    public void load(int siteId) {
+        SiteFingerprints fingerprints = new SiteFingerprints();
+        if (isEnabled()) {
+            jdbcTemplate.query("SELECT id, simhash FROM page WHERE site_id = ? " +
+                    "AND simhash IS NOT NULL AND duplicate_of IS NULL", rs -> {
+                fingerprints.add(rs.getInt(1), rs.getLong(2));
+            }, siteId);
+        }
+        sites.put(siteId, fingerprints);
+        logger.debug("Загружено {} отпечатков страниц сайта {}", fingerprints.size(), siteId);
+    }
+
+    public void release(int siteId) {
+        sites.remove(siteId);
+    }
+
+    /**
+     * @return id страницы, почти дубликатом которой является текст, или null
+     */
+    public Integer findOriginal(int siteId, long fingerprint) {
+        SiteFingerprints fingerprints = sites.get(siteId);
+        if (fingerprints == null || !isEnabled()) {
+            return null;
+        }
+        return fingerprints.find(fingerprint, crawlerSettings.getNearDuplicateDistance());
+    }
+
+    public void add(int siteId, int pageId, long fingerprint) {
+        SiteFingerprints fingerprints = sites.get(siteId);
+        if (fingerprints != null) {
+            fingerprints.add(pageId, fingerprint);
+        }
+    }
+
+    private static class SiteFingerprints {
+        private final Map<Integer, List<long[]>> buckets = new HashMap<>();
+        private int size;
+
+        synchronized void add(int pageId, long fingerprint) {
+            for (int block = 0; block < BLOCKS; block++) {
+                buckets.computeIfAbsent(key(block, fingerprint), k -> new ArrayList<>())
+                        .add(new long[]{pageId, fingerprint});
+            }
+            size++;
+        }
+
+        synchronized Integer find(long fingerprint, int maxDistance) {
+            for (int block = 0; block < BLOCKS; block++) {
+                List<long[]> bucket = buckets.get(key(block, fingerprint));
+                if (bucket == null) {
+                    continue;
+                }
+                for (long[] page : bucket) {
+                    if (SimHash.distance(page[1], fingerprint) <= maxDistance) {
+                        return (int) page[0];
+                    }
+                }
+            }
+            return null;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        private static int key(int block, long fingerprint) {
+            return block << 16 | (int) ((fingerprint >>> (block * 16)) & 0xFFFF);
+        }
+    }
+}
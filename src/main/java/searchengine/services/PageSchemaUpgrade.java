@@ -0,0 +1,45 @@
+package searchengine.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Уникальный ключ страницы (site_id, path). Через JPA его не описать: path —
+ * TEXT, и MySQL индексирует его только по префиксу, поэтому ключ создаётся
+ * здесь, после того как Hibernate обновит схему. Адреса, совпадающие в первых
+ * PATH_PREFIX символах, считаются одной страницей.
+ */
+@Component
+public class PageSchemaUpgrade {
+
+    private static final Logger logger = LoggerFactory.getLogger(PageSchemaUpgrade.class);
+    private static final String UNIQUE_KEY = "uk_page_site_path";
+    // 512 символов utf8mb4 вместе с site_id укладываются в предел ключа InnoDB 3072 байта
+    private static final int PATH_PREFIX = 512;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void addUniquePathKey() {
+        try {
+            Integer exists = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM information_schema.statistics " +
+                    "WHERE table_schema = DATABASE() AND table_name = 'page' AND index_name = ?", Integer.class, UNIQUE_KEY);
+            if (exists != null && exists > 0) {
+                return;
+            }
+            jdbcTemplate.execute("ALTER TABLE page ADD UNIQUE KEY " + UNIQUE_KEY + " (site_id, path(" + PATH_PREFIX + "))");
+            logger.info("Создан уникальный ключ {} на page (site_id, path)", UNIQUE_KEY);
+        } catch (DataAccessException e) {
+            // Чаще всего в таблице уже есть дубликаты: их убирает переиндексация сайта
+            logger.error("Не удалось создать уникальный ключ {}: {}. Переиндексируйте сайты с повторяющимися страницами",
+                    UNIQUE_KEY, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package searchengine.services;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Правила robots.txt, применимые к нашему краулеру: Allow/Disallow с поддержкой
+ * шаблонов * и $, Crawl-delay и перечисленные в файле карты сайта.
+ * Побеждает самое длинное совпавшее правило, при равной длине — Allow.
+ */
+public class RobotsRules {
+
+    private static final RobotsRules ALLOW_ALL = new RobotsRules(List.of(), -1, List.of());
+
+    private final List<Rule> rules;
+    private final long crawlDelayMs;
+    private final List<String> sitemaps;
+
+    private RobotsRules(List<Rule> rules, long crawlDelayMs, List<String> sitemaps) {
+        this.rules = rules;
+        this.crawlDelayMs = crawlDelayMs;
+        this.sitemaps = sitemaps;
+    }
+
+    public static RobotsRules allowAll() {
+        return ALLOW_ALL;
+    }
+
+    public static RobotsRules parse(String content, String userAgent) {
+        String agent = userAgent.toLowerCase(Locale.ROOT);
+        List<String> sitemaps = new ArrayList<>();
+        Group specific = null;
+        Group wildcard = null;
+
+        Group current = null;
+        boolean readingAgents = false;
+        for (String rawLine : content.split("\r?\n|\r")) {
+            String line = stripComment(rawLine).trim();
+            int colon = line.indexOf(':');
+            if (colon <= 0) {
+                continue;
+            }
+            String field = line.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+            String value = line.substring(colon + 1).trim();
+
+            switch (field) {
+                case "user-agent" -> {
+                    if (!readingAgents) {
+                        current = new Group();
+                        readingAgents = true;
+                    }
+                    String name = value.toLowerCase(Locale.ROOT);
+                    if (name.equals("*")) {
+                        if (wildcard == null) {
+                            wildcard = current;
+                        }
+                    } else if (!name.isEmpty() && agent.contains(name) && specific == null) {
+                        specific = current;
+                    }
+                }
+                case "allow", "disallow" -> {
+                    readingAgents = false;
+                    // Пустой Disallow означает «разрешено всё» и правила не добавляет
+                    if (current != null && !value.isEmpty()) {
+                        current.rules.add(new Rule(value, field.equals("allow")));
+                    }
+                }
+                case "crawl-delay" -> {
+                    readingAgents = false;
+                    if (current != null) {
+                        try {
+                            current.crawlDelayMs = Math.round(Double.parseDouble(value) * 1000);
+                        } catch (NumberFormatException ignored) {
+                            // некорректное значение пропускаем
+                        }
+                    }
+                }
+                case "sitemap" -> {
+                    if (!value.isEmpty()) {
+                        sitemaps.add(value);
+                    }
+                }
+                default -> readingAgents = false;
+            }
+        }
+
+        Group group = specific != null ? specific : wildcard;
+        if (group == null) {
+            return new RobotsRules(List.of(), -1, List.copyOf(sitemaps));
+        }
+        return new RobotsRules(List.copyOf(group.rules), group.crawlDelayMs, List.copyOf(sitemaps));
+    }
+
+    public boolean isAllowed(String path) {
+        Rule best = null;
+        for (Rule rule : rules) {
+            if (rule.matches(path) && (best == null
+                    || rule.pattern.length() > best.pattern.length()
+                    || (rule.pattern.length() == best.pattern.length() && rule.allow))) {
+                best = rule;
+            }
+        }
+        return best == null || best.allow;
+    }
+
+    /**
+     * @return задержка между запросами в миллисекундах или -1, если не задана
+     */
+    public long getCrawlDelayMs() {
+        return crawlDelayMs;
+    }
+
+    public List<String> getSitemaps() {
+        return sitemaps;
+    }
+
+    private static String stripComment(String line) {
+        int hash = line.indexOf('#');
+        return hash >= 0 ? line.substring(0, hash) : line;
+    }
+
+    private static class Group {
+        private final List<Rule> rules = new ArrayList<>();
+        private long crawlDelayMs = -1;
+    }
+
+    private record Rule(String pattern, boolean allow) {
+
+        boolean matches(String path) {
+            boolean anchored = pattern.endsWith("$");
+            String p = anchored ? pattern.substring(0, pattern.length() - 1) : pattern;
+            return matches(p, 0, path, 0, anchored);
+        }
+
+        private static boolean matches(String p, int pi, String s, int si, boolean anchored) {
+            while (pi < p.length()) {
+                char c = p.charAt(pi);
+                if (c == '*') {
+                    for (int k = si; k <= s.length(); k++) {
+                        if (matches(p, pi + 1, s, k, anchored)) {
+                            return true;
+                        }
+                    }
+                    return false;
+                }
+                if (si >= s.length() || s.charAt(si) != c) {
+                    return false;
+                }
+                pi++;
+                si++;
+            }
+            return !anchored || si == s.length();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package searchengine.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Загружает robots.txt один раз на хост и хранит разобранные правила сутки.
+ */
+@Component
+public class RobotsTxtCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(RobotsTxtCache.class);
+    private static final Duration TTL = Duration.ofHours(24);
+
+    private final Map<String, CachedRules> cache = new ConcurrentHashMap<>();
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+    public RobotsRules get(String url, String userAgent) {
+        String origin = origin(url);
+        CachedRules cached = cache.get(origin);
+        if (cached == null || cached.isExpired()) {
+            cached = new CachedRules(fetch(origin, userAgent), System.currentTimeMillis());
+            cache.put(origin, cached);
+        }
+        return cached.rules;
+    }
+
+    private RobotsRules fetch(String origin, String userAgent) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(origin + "/robots.txt"))
+                .header("User-Agent", userAgent)
+                .timeout(Duration.ofSeconds(15))
+                .GET()
+                .build();
+        try {
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() / 100 == 2) {
+                logger.info("Загружен robots.txt: {}", origin);
+                return RobotsRules.parse(response.body(), userAgent);
+            }
+            logger.info("robots.txt для {} недоступен (код {}), ограничений нет", origin, response.statusCode());
+        } catch (IOException e) {
+            logger.warn("Не удалось загрузить robots.txt для {}: {}", origin, e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return RobotsRules.allowAll();
+    }
+
+    private static String origin(String url) {
+        URI uri = URI.create(url);
+        String port = uri.getPort() >= 0 ? ":" + uri.getPort() : "";
+        return uri.getScheme() + "://" + uri.getHost() + port;
+    }
+
+    private record CachedRules(RobotsRules rules, long fetchedAt) {
+        boolean isExpired() {
+            return System.currentTimeMillis() - fetchedAt > TTL.toMillis();
+        }
+    }
+}
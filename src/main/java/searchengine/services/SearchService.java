@@ -0,0 +1,205 @@
+package searchengine.services;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Entities;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import searchengine.TextProcessor;
+import searchengine.config.SearchSettings;
+import searchengine.dto.search.SearchData;
+import searchengine.dto.search.SearchResponse;
+import searchengine.model.ContentCodec;
+import searchengine.services.search.QueryTerm;
+import searchengine.services.search.SearchMode;
+import searchengine.services.search.TopKCollector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Поиск по индексу: страницы, содержащие все леммы запроса, ранжируются по
+ * сумме rank. С позиционным индексом доступны режим близости (бонус страницам,
+ * где слова запроса стоят рядом) и поиск точной фразы. Сами списки страниц
+ * обходит {@link ShardedSearchIndex}, здесь — разбор запроса и сниппеты.
+ */
+@Service
+public class SearchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SearchService.class);
+
+    // Сниппет ищем только в начале длинных страниц
+    private static final int MAX_SNIPPET_SCAN_WORDS = 20000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TextProcessor textProcessor;
+
+    @Autowired
+    private SearchSettings searchSettings;
+
+    @Autowired
+    private ShardedSearchIndex searchIndex;
+
+    @Autowired
+    private IndexingMetrics metrics;
+
+    public SearchResponse search(String query, String site, int offset, int limit, SearchMode mode) {
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("Задан пустой поисковый запрос");
+        }
+        String text = query.trim();
+        // Запрос в кавычках — всегда поиск фразы
+        if (text.length() > 1 && text.startsWith("\"") && text.endsWith("\"")) {
+            mode = SearchMode.PHRASE;
+            text = text.substring(1, text.length() - 1);
+        }
+        if (mode == SearchMode.PHRASE && !searchSettings.isPositionalIndex()) {
+            throw new IllegalArgumentException("Поиск фразы недоступен: позиционный индекс выключен");
+        }
+        Integer siteId = null;
+        if (site != null && !site.isBlank()) {
+            siteId = jdbcTemplate.query("SELECT id FROM site WHERE url = ?",
+                    rs -> rs.next() ? rs.getInt(1) : null, site);
+            if (siteId == null) {
+                throw new IllegalArgumentException("Указанный сайт не найден");
+            }
+        }
+
+        List<QueryTerm> terms = parseQuery(text);
+        Set<String> lemmas = new LinkedHashSet<>();
+        terms.forEach(term -> lemmas.addAll(term.lemmas()));
+        if (terms.isEmpty()) {
+            return response(0, List.of(), 0);
+        }
+
+        long start = System.nanoTime();
+        ShardedSearchIndex.Result found = searchIndex.search(siteId, terms, lemmas, mode, offset + limit);
+        metrics.searchCompleted(siteId == null ? "all" : "site", System.nanoTime() - start);
+        int count = found.count();
+        if (found.missingShards() > 0) {
+            logger.warn("Запрос \"{}\": {} шардов не ответили, результат неполный", text, found.missingShards());
+        }
+
+        TopKCollector.ScoredPage[] top = found.top();
+        if (offset >= top.length) {
+            return response(count, List.of(), found.missingShards());
+        }
+        float maxScore = top[0].score();
+        TopKCollector.ScoredPage[] page = Arrays.copyOfRange(top, offset, top.length);
+        return response(count, loadResults(page, maxScore, lemmas), found.missingShards());
+    }
+
+    /**
+     * Слова запроса с их позицией в запросе; служебные слова пропускаются,
+     * но позицию занимают, как и при индексации текста страницы.
+     */
+    private List<QueryTerm> parseQuery(String text) {
+        List<List<String>> tokens = textProcessor.tokenLemmas(text);
+        List<QueryTerm> terms = new ArrayList<>();
+        for (int i = 0; i < tokens.size(); i++) {
+            if (!tokens.get(i).isEmpty()) {
+                terms.add(new QueryTerm(i, tokens.get(i)));
+            }
+        }
+        return terms;
+    }
+
+    private List<SearchData> loadResults(TopKCollector.ScoredPage[] pages, float maxScore, Set<String> lemmas) {
+        Map<Integer, SearchData> byId = new HashMap<>();
+        String placeholders = String.join(", ", Collections.nCopies(pages.length, "?"));
+        Object[] ids = Arrays.stream(pages).map(TopKCollector.ScoredPage::pageId).toArray();
+        jdbcTemplate.query("SELECT p.id, p.path, p.content, p.content_codec, p.text, s.url, s.name " +
+                "FROM page p JOIN site s ON s.id = p.site_id WHERE p.id IN (" + placeholders + ")", rs -> {
+            ContentCodec codec = ContentCodec.valueOf(rs.getString("content_codec"));
+            String html = codec.decode(rs.getBytes("content"));
+            byte[] storedText = rs.getBytes("text");
+            String text = storedText != null ? codec.decode(storedText) : Jsoup.parse(html).text();
+            String siteUrl = rs.getString("url");
+
+            SearchData data = new SearchData();
+            data.setSite(siteUrl.endsWith("/") ? siteUrl.substring(0, siteUrl.length() - 1) : siteUrl);
+            data.setSiteName(rs.getString("name"));
+            data.setUri(rs.getString("path"));
+            data.setTitle(Jsoup.parse(html).title());
+            data.setSnippet(snippet(text, lemmas));
+            byId.put(rs.getInt("id"), data);
+        }, ids);
+
+        List<SearchData> results = new ArrayList<>(pages.length);
+        for (TopKCollector.ScoredPage page : pages) {
+            SearchData data = byId.get(page.pageId());
+            if (data != null) {
+                data.setRelevance(page.score() / maxScore);
+                results.add(data);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Фрагмент текста длиной snippet-words слов, в котором больше всего слов
+     * запроса; найденные слова выделяются тегом b.
+     */
+    private String snippet(String text, Set<String> lemmas) {
+        String[] words = text.split("\\s+");
+        int scan = Math.min(words.length, MAX_SNIPPET_SCAN_WORDS);
+        boolean[] matches = new boolean[scan];
+        // Лемматизируем просматриваемый текст одним вызовом, а не по слову за раз
+        List<List<String>> wordLemmas = textProcessor.wordLemmas(Arrays.copyOf(words, scan));
+        for (int i = 0; i < scan; i++) {
+            matches[i] = wordLemmas.get(i).stream().anyMatch(lemmas::contains);
+        }
+
+        int window = Math.max(1, searchSettings.getSnippetWords());
+        int bestStart = 0;
+        int bestCount = -1;
+        int count = 0;
+        for (int i = 0; i < scan; i++) {
+            if (matches[i]) {
+                count++;
+            }
+            if (i >= window && matches[i - window]) {
+                count--;
+            }
+            if (count > bestCount) {
+                bestCount = count;
+                bestStart = Math.max(0, i - window + 1);
+            }
+        }
+
+        StringBuilder snippet = new StringBuilder(bestStart > 0 ? "..." : "");
+        int end = Math.min(bestStart + window, scan);
+        for (int i = bestStart; i < end; i++) {
+            if (i > bestStart) {
+                snippet.append(' ');
+            }
+            String word = Entities.escape(words[i]);
+            snippet.append(matches[i] ? "<b>" + word + "</b>" : word);
+        }
+        if (end < words.length) {
+            snippet.append("...");
+        }
+        return snippet.toString();
+    }
+
+    private static SearchResponse response(int count, List<SearchData> data, int missingShards) {
+        SearchResponse response = new SearchResponse();
+        response.setResult(true);
+        response.setCount(count);
+        response.setData(data);
+        response.setPartial(missingShards > 0);
+        response.setMissingShards(missingShards);
+        return response;
+    }
+}
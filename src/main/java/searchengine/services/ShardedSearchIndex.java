@@ -0,0 +1,266 @@
+package searchengine.services;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import searchengine.config.SearchSettings;
+import searchengine.model.Status;
+import searchengine.services.search.IndexShard;
+import searchengine.services.search.PostingList;
+import searchengine.services.search.QueryTerm;
+import searchengine.services.search.SearchMode;
+import searchengine.services.search.TopKCollector;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Поисковый индекс в памяти, разбитый на шарды по сайтам. Запрос по всем
+ * сайтам выполняется во всех шардах параллельно на виртуальных потоках,
+ * а лучшие страницы шардов сливаются в общий top-k. Шард, не ответивший
+ * за search-settings.shard-timeout-ms, в ответ не попадает.
+ * <p>
+ * Запись лемм помечает шард сайта устаревшим; перестраивается он по
+ * расписанию, так что переиндексация одного сайта не трогает шарды остальных.
+ * Пока сайт индексируется, его шард перестраивается не чаще раза в
+ * search-settings.indexing-shard-refresh-interval-ms: поиск видит новые
+ * страницы с этой задержкой, а не только после окончания обхода.
+ */
+@Component
+public class ShardedSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardedSearchIndex.class);
+
+    private final Map<Integer, IndexShard> shards = new ConcurrentHashMap<>();
+    private final Set<Integer> staleShards = ConcurrentHashMap.newKeySet();
+    // ReentrantLock, а не synchronized: шард грузится на виртуальном потоке поиска,
+    // и монитор на время чтения из базы прикрепил бы его к потоку-носителю
+    private final Map<Integer, ReentrantLock> loadLocks = new ConcurrentHashMap<>();
+    private final Map<Integer, Long> loadedAt = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private volatile Set<Integer> knownSites = Set.of();
+    private Semaphore searchPermits;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SearchSettings searchSettings;
+
+    @Autowired
+    private IndexingMetrics metrics;
+
+    private JdbcTemplate streamingJdbcTemplate;
+
+    @PostConstruct
+    public void init() {
+        streamingJdbcTemplate = new JdbcTemplate(dataSource);
+        streamingJdbcTemplate.setFetchSize(Integer.MIN_VALUE);
+        searchPermits = new Semaphore(searchSettings.getMaxParallelShardSearches());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public void markStale(int siteId) {
+        staleShards.add(siteId);
+    }
+
+    /**
+     * Подменяет все шарды готовыми, например построенными при загрузке снимка
+     * индекса; сайты без шарда в loaded считаются удалёнными.
+     */
+    public void install(Map<Integer, IndexShard> loaded) {
+        knownSites = Set.copyOf(loaded.keySet());
+        shards.putAll(loaded);
+        shards.keySet().retainAll(loaded.keySet());
+        staleShards.clear();
+        loadLocks.keySet().retainAll(loaded.keySet());
+        long now = System.currentTimeMillis();
+        loaded.keySet().forEach(siteId -> loadedAt.put(siteId, now));
+        loadedAt.keySet().retainAll(loaded.keySet());
+    }
+
+    /**
+     * Выбрасывает все шарды и загружает их заново из базы, например после
+     * неудачной загрузки снимка, оставившей таблицы в неизвестном состоянии.
+     */
+    public void reloadAll() {
+        shards.clear();
+        staleShards.clear();
+        loadedAt.clear();
+        knownSites = Set.of();
+        refresh();
+    }
+
+    /**
+     * @param siteId сайт или null для поиска по всем сайтам
+     */
+    public Result search(Integer siteId, List<QueryTerm> terms, Set<String> lemmas, SearchMode mode, int k) {
+        List<Integer> siteIds = siteId != null ? List.of(siteId) : new ArrayList<>(knownSites);
+        // Future из ExecutorService, а не CompletableFuture: только его cancel(true) прерывает поток шарда
+        List<Future<IndexShard.Result>> futures = new ArrayList<>(siteIds.size());
+        for (int id : siteIds) {
+            futures.add(executor.submit(() -> searchShard(id, terms, lemmas, mode, k)));
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(searchSettings.getShardTimeoutMs());
+        TopKCollector merged = new TopKCollector(k);
+        int count = 0;
+        int missing = 0;
+        for (int i = 0; i < futures.size(); i++) {
+            Future<IndexShard.Result> future = futures.get(i);
+            try {
+                IndexShard.Result result = future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                count += result.count();
+                for (TopKCollector.ScoredPage page : result.top()) {
+                    merged.collect(page.pageId(), page.score());
+                }
+            } catch (TimeoutException e) {
+                // Прерывание останавливает поиск в шарде и возвращает его разрешение семафора
+                future.cancel(true);
+                missing++;
+                metrics.shardTimedOut();
+                logger.warn("Шард сайта {} не ответил за {} мс", siteIds.get(i), searchSettings.getShardTimeoutMs());
+            } catch (ExecutionException e) {
+                missing++;
+                logger.error("Ошибка поиска в шарде сайта {}", siteIds.get(i), e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.forEach(f -> f.cancel(true));
+                break;
+            }
+        }
+        return new Result(count, merged.results(), missing);
+    }
+
+    private IndexShard.Result searchShard(int siteId, List<QueryTerm> terms, Set<String> lemmas, SearchMode mode, int k) {
+        try {
+            searchPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Поиск прерван", e);
+        }
+        try {
+            return shard(siteId).search(terms, lemmas, mode, k);
+        } finally {
+            searchPermits.release();
+        }
+    }
+
+    private IndexShard shard(int siteId) {
+        IndexShard shard = shards.get(siteId);
+        if (shard != null) {
+            return shard;
+        }
+        ReentrantLock lock = loadLock(siteId);
+        lock.lock();
+        try {
+            shard = shards.get(siteId);
+            return shard != null ? shard : load(siteId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Загружает шарды новых сайтов и перестраивает устаревшие шарды: сразу,
+     * если обход сайта закончен, и реже, если он ещё идёт. Шарды удалённых
+     * сайтов выбрасывает.
+     */
+    @Scheduled(fixedDelayString = "${search-settings.shard-refresh-interval-ms:30000}")
+    public void refresh() {
+        Map<Integer, Status> sites = new HashMap<>();
+        try {
+            jdbcTemplate.query("SELECT id, status FROM site", rs -> {
+                sites.put(rs.getInt("id"), Status.valueOf(rs.getString("status")));
+            });
+        } catch (DataAccessException e) {
+            logger.warn("Не удалось обновить шарды поискового индекса: {}", e.getMessage());
+            return;
+        }
+        knownSites = Set.copyOf(sites.keySet());
+        shards.keySet().retainAll(sites.keySet());
+        staleShards.retainAll(sites.keySet());
+        loadLocks.keySet().retainAll(sites.keySet());
+        loadedAt.keySet().retainAll(sites.keySet());
+
+        long now = System.currentTimeMillis();
+        sites.forEach((siteId, status) -> {
+            ReentrantLock lock = loadLock(siteId);
+            lock.lock();
+            try {
+                // Шард индексируемого сайта тоже устаревает, но перестраивать его на каждой записи дорого
+                boolean due = status != Status.INDEXING
+                        || now - loadedAt.getOrDefault(siteId, 0L) >= searchSettings.getIndexingShardRefreshIntervalMs();
+                boolean rebuild = !shards.containsKey(siteId) || (staleShards.contains(siteId) && due);
+                if (!rebuild) {
+                    return;
+                }
+                try {
+                    load(siteId);
+                } catch (DataAccessException e) {
+                    staleShards.add(siteId);
+                    logger.warn("Не удалось загрузить шард сайта {}: {}", siteId, e.getMessage());
+                }
+            } finally {
+                lock.unlock();
+            }
+        });
+    }
+
+    private ReentrantLock loadLock(int siteId) {
+        return loadLocks.computeIfAbsent(siteId, id -> new ReentrantLock());
+    }
+
+    private IndexShard load(int siteId) {
+        long start = System.nanoTime();
+        // Снимаем отметку до чтения: записи, пришедшие во время загрузки, пометят шард снова
+        staleShards.remove(siteId);
+        Map<String, PostingList.Builder> builders = new HashMap<>();
+        streamingJdbcTemplate.query("SELECT l.lemma, i.page_id, i.`rank`, i.positions FROM `index` i " +
+                "JOIN lemma l ON l.id = i.lemma_id WHERE l.site_id = ?", rs -> {
+            builders.computeIfAbsent(rs.getString(1), lemma -> new PostingList.Builder())
+                    .add(rs.getInt(2), rs.getFloat(3), rs.getBytes(4));
+        }, siteId);
+
+        Map<String, PostingList> postings = new HashMap<>(builders.size() * 2);
+        builders.forEach((lemma, builder) -> postings.put(lemma, builder.build()));
+        IndexShard shard = new IndexShard(siteId, postings);
+        shards.put(siteId, shard);
+        loadedAt.put(siteId, System.currentTimeMillis());
+        logger.info("Шард сайта {} загружен: {} лемм за {} мс", siteId, shard.getLemmaCount(),
+                (System.nanoTime() - start) / 1_000_000);
+        return shard;
+    }
+
+    /**
+     * @param missingShards сколько шардов не ответили вовремя или упали; их страниц в результате нет
+     */
+    public record Result(int count, TopKCollector.ScoredPage[] top, int missingShards) {
+    }
+}
@@ -0,0 +1,74 @@
+package searchengine.services;
+
+import java.util.Locale;
+
+/**
+ * 64-битный SimHash текста по шинглам из трёх слов. У почти одинаковых
+ * текстов отпечатки отличаются в нескольких битах, поэтому близость страниц
+ * оценивается расстоянием Хэмминга между отпечатками.
+ */
+public final class SimHash {
+
+    private static final int SHINGLE_WORDS = 3;
+    // На коротких страницах отпечаток слишком чувствителен к каждому слову
+    private static final int MIN_SHINGLES = 16;
+
+    private SimHash() {
+    }
+
+    /**
+     * @return отпечаток или null, если текст слишком короткий
+     */
+    public static Long fingerprint(String text) {
+        if (text == null) {
+            return null;
+        }
+        String[] words = text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+");
+        int start = words.length > 0 && words[0].isEmpty() ? 1 : 0;
+        int shingles = words.length - start - SHINGLE_WORDS + 1;
+        if (shingles < MIN_SHINGLES) {
+            return null;
+        }
+
+        int[] weights = new int[64];
+        for (int i = start; i < start + shingles; i++) {
+            long hash = hash(words, i);
+            for (int bit = 0; bit < 64; bit++) {
+                weights[bit] += ((hash >>> bit) & 1) != 0 ? 1 : -1;
+            }
+        }
+        long fingerprint = 0;
+        for (int bit = 0; bit < 64; bit++) {
+            if (weights[bit] > 0) {
+                fingerprint |= 1L << bit;
+            }
+        }
+        return fingerprint;
+    }
+
+    public static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+
+    /**
+     * FNV-1a по символам шингла с финальным перемешиванием из MurmurHash3.
+     */
+    private static long hash(String[] words, int from) {
+        long hash = 0xcbf29ce484222325L;
+        for (int w = from; w < from + SHINGLE_WORDS; w++) {
+            String word = words[w];
+            for (int i = 0; i < word.length(); i++) {
+                hash ^= word.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+            hash ^= ' ';
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,184 @@
+package searchengine.services;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import searchengine.model.Status;
+
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Счётчики страниц и лемм по сайтам, которые ведёт конвейер индексации.
+ * Дашборд читает их из памяти, а в таблицу site они сбрасываются периодически,
+ * поэтому COUNT(*) по page и lemma на каждый запрос статистики не нужен.
+ */
+@Component
+public class SiteStatisticsRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(SiteStatisticsRegistry.class);
+
+    private final Map<String, SiteCounters> counters = new ConcurrentHashMap<>();
+    private final Map<Integer, String> siteUrls = new ConcurrentHashMap<>();
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    public void load() {
+        try {
+            jdbcTemplate.query("SELECT id, url, status, status_time, last_error, page_count, lemma_count FROM site", rs -> {
+                bindSiteId(rs.getInt("id"), rs.getString("url"));
+                SiteCounters site = siteCounters(rs.getString("url"));
+                site.status = Status.valueOf(rs.getString("status"));
+                Timestamp statusTime = rs.getTimestamp("status_time");
+                site.statusTime = statusTime != null ? statusTime.getTime() : 0;
+                site.lastError = rs.getString("last_error");
+                site.pages.add(rs.getLong("page_count"));
+                site.lemmas.add(rs.getLong("lemma_count"));
+            });
+            logger.info("Загружена статистика по {} сайтам", counters.size());
+        } catch (DataAccessException e) {
+            logger.warn("Не удалось загрузить статистику из таблицы site: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Перечитывает счётчики всех сайтов из таблицы site после её замены целиком.
+     */
+    public void reload() {
+        counters.clear();
+        siteUrls.clear();
+        load();
+    }
+
+    public void reset(String siteUrl) {
+        SiteCounters site = siteCounters(siteUrl);
+        site.pages.reset();
+        site.lemmas.reset();
+        site.dirty.set(true);
+    }
+
+    public void restore(String siteUrl, long pages, long lemmas) {
+        SiteCounters site = siteCounters(siteUrl);
+        site.pages.reset();
+        site.pages.add(pages);
+        site.lemmas.reset();
+        site.lemmas.add(lemmas);
+        site.dirty.set(true);
+    }
+
+    public void pageAdded(String siteUrl) {
+        SiteCounters site = siteCounters(siteUrl);
+        site.pages.increment();
+        site.dirty.set(true);
+    }
+
+    public void lemmasAdded(String siteUrl, int count) {
+        SiteCounters site = siteCounters(siteUrl);
+        site.lemmas.add(count);
+        site.dirty.set(true);
+    }
+
+    /**
+     * Связывает id строки site с адресом сайта: запись лемм знает только site_id.
+     */
+    public void bindSiteId(int siteId, String siteUrl) {
+        siteUrls.put(siteId, siteUrl);
+    }
+
+    public void lemmasAdded(int siteId, int count) {
+        String siteUrl = siteUrls.get(siteId);
+        if (siteUrl != null) {
+            lemmasAdded(siteUrl, count);
+        }
+    }
+
+    public void statusChanged(String siteUrl, Status status, String error) {
+        SiteCounters site = siteCounters(siteUrl);
+        site.status = status;
+        site.statusTime = System.currentTimeMillis();
+        site.lastError = error;
+    }
+
+    public SiteCounters get(String siteUrl) {
+        return counters.get(siteUrl);
+    }
+
+    public Collection<SiteCounters> getAll() {
+        return counters.values();
+    }
+
+    @Scheduled(fixedDelayString = "${statistics.checkpoint-interval-ms:10000}")
+    public void checkpoint() {
+        for (SiteCounters site : counters.values()) {
+            if (!site.dirty.compareAndSet(true, false)) {
+                continue;
+            }
+            try {
+                jdbcTemplate.update("UPDATE site SET page_count = ?, lemma_count = ? WHERE url = ?",
+                        site.getPages(), site.getLemmas(), site.url);
+            } catch (DataAccessException e) {
+                site.dirty.set(true);
+                logger.warn("Не удалось сохранить статистику сайта {}: {}", site.url, e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void flush() {
+        checkpoint();
+    }
+
+    private SiteCounters siteCounters(String siteUrl) {
+        return counters.computeIfAbsent(siteUrl, SiteCounters::new);
+    }
+
+    public static class SiteCounters {
+        private final String url;
+        private final LongAdder pages = new LongAdder();
+        private final LongAdder lemmas = new LongAdder();
+        private final AtomicBoolean dirty = new AtomicBoolean(false);
+        private volatile Status status;
+        private volatile long statusTime;
+        private volatile String lastError;
+
+        private SiteCounters(String url) {
+            this.url = url;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public long getPages() {
+            return pages.sum();
+        }
+
+        public long getLemmas() {
+            return lemmas.sum();
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public long getStatusTime() {
+            return statusTime;
+        }
+
+        public String getLastError() {
+            return lastError;
+        }
+    }
+}
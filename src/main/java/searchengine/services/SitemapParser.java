@@ -0,0 +1,225 @@
+package searchengine.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Predicate;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Потоковый разбор sitemap.xml и индексов карт сайта через StAX:
+ * документ не загружается в память целиком, а адреса отдаются по одному.
+ */
+@Component
+public class SitemapParser {
+
+    private static final Logger logger = LoggerFactory.getLogger(SitemapParser.class);
+    private static final int MAX_DEPTH = 3;
+
+    private final XMLInputFactory xmlInputFactory;
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+    public SitemapParser() {
+        xmlInputFactory = XMLInputFactory.newFactory();
+        xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        xmlInputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    /**
+     * Обходит карту сайта и вложенные карты; consumer возвращает false, чтобы прекратить разбор.
+     * Отмена token обрывает загрузку карты и чтение её тела, не дожидаясь таймаута.
+     */
+    public void parse(String sitemapUrl, String userAgent, CancellationToken token, Predicate<SitemapEntry> consumer) {
+        parse(sitemapUrl, userAgent, token, consumer, 0);
+    }
+
+    private boolean parse(String sitemapUrl, String userAgent, CancellationToken token,
+                          Predicate<SitemapEntry> consumer, int depth) {
+        if (token.isCancelled()) {
+            return false;
+        }
+        if (depth > MAX_DEPTH) {
+            logger.warn("Слишком глубокая вложенность карт сайта: {}", sitemapUrl);
+            return true;
+        }
+        List<String> nested = new ArrayList<>();
+        // Закрытие потока при отмене прерывает чтение, зависшее на медленном сервере
+        CompletableFuture<Void> readGuard = new CompletableFuture<>();
+        try (InputStream in = open(sitemapUrl, userAgent, token)) {
+            if (in == null) {
+                return !token.isCancelled();
+            }
+            readGuard.whenComplete((result, error) -> {
+                if (error != null) {
+                    closeQuietly(in);
+                }
+            });
+            token.register(readGuard);
+            if (!read(in, nested, token, consumer)) {
+                return false;
+            }
+        } catch (IOException | XMLStreamException e) {
+            if (token.isCancelled()) {
+                return false;
+            }
+            logger.warn("Не удалось разобрать карту сайта {}: {}", sitemapUrl, e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            readGuard.complete(null);
+        }
+        for (String child : nested) {
+            if (!parse(child, userAgent, token, consumer, depth + 1)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean read(InputStream in, List<String> nested, CancellationToken token,
+                         Predicate<SitemapEntry> consumer) throws XMLStreamException {
+        XMLStreamReader reader = xmlInputFactory.createXMLStreamReader(in);
+        try {
+            String loc = null;
+            String lastmod = null;
+            StringBuilder text = new StringBuilder();
+            while (reader.hasNext()) {
+                if (token.isCancelled()) {
+                    return false;
+                }
+                switch (reader.next()) {
+                    case XMLStreamConstants.START_ELEMENT -> {
+                        text.setLength(0);
+                        String name = reader.getLocalName();
+                        if (name.equals("url") || name.equals("sitemap")) {
+                            loc = null;
+                            lastmod = null;
+                        }
+                    }
+                    case XMLStreamConstants.CHARACTERS, XMLStreamConstants.CDATA -> text.append(reader.getText());
+                    case XMLStreamConstants.END_ELEMENT -> {
+                        switch (reader.getLocalName()) {
+                            case "loc" -> loc = text.toString().trim();
+                            case "lastmod" -> lastmod = text.toString().trim();
+                            case "url" -> {
+                                if (loc != null && !loc.isEmpty()
+                                        && !consumer.test(new SitemapEntry(loc, parseLastmod(lastmod)))) {
+                                    return false;
+                                }
+                            }
+                            case "sitemap" -> {
+                                if (loc != null && !loc.isEmpty()) {
+                                    nested.add(loc);
+                                }
+                            }
+                            default -> {
+                            }
+                        }
+                    }
+                    default -> {
+                    }
+                }
+            }
+            return true;
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * @return null, если карта недоступна, её адрес некорректен или загрузка отменена
+     */
+    private InputStream open(String url, String userAgent, CancellationToken token) throws IOException, InterruptedException {
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder(URI.create(url))
+                    .header("User-Agent", userAgent)
+                    .timeout(Duration.ofSeconds(30))
+                    .GET()
+                    .build();
+        } catch (IllegalArgumentException e) {
+            logger.warn("Некорректный адрес карты сайта пропущен: {} ({})", url, e.getMessage());
+            return null;
+        }
+        HttpResponse<InputStream> response;
+        try {
+            response = token.register(httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream())).get();
+        } catch (CancellationException e) {
+            return null;
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+        }
+        if (response.statusCode() / 100 != 2) {
+            response.body().close();
+            logger.info("Карта сайта {} недоступна (код {})", url, response.statusCode());
+            return null;
+        }
+        BufferedInputStream in = new BufferedInputStream(response.body());
+        in.mark(2);
+        int b1 = in.read();
+        int b2 = in.read();
+        in.reset();
+        // Сжатые карты (*.xml.gz) определяем по сигнатуре gzip, а не по расширению
+        return b1 == 0x1f && b2 == 0x8b ? new GZIPInputStream(in) : in;
+    }
+
+    private static void closeQuietly(InputStream in) {
+        try {
+            in.close();
+        } catch (IOException ignored) {
+            // поток и так бросаем
+        }
+    }
+
+    static Instant parseLastmod(String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        try {
+            return OffsetDateTime.parse(value).toInstant();
+        } catch (DateTimeParseException ignored) {
+            // W3C Datetime допускает и более короткие формы
+        }
+        try {
+            return LocalDateTime.parse(value).toInstant(ZoneOffset.UTC);
+        } catch (DateTimeParseException ignored) {
+            // пробуем только дату
+        }
+        try {
+            return LocalDate.parse(value).atStartOfDay().toInstant(ZoneOffset.UTC);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    public record SitemapEntry(String url, Instant lastmod) {
+    }
+}
@@ -8,48 +8,48 @@ import searchengine.dto.statistics.DetailedStatisticsItem;
 import searchengine.dto.statistics.StatisticsData;
 import searchengine.dto.statistics.StatisticsResponse;
 import searchengine.dto.statistics.TotalStatistics;
+import searchengine.model.Status;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
 
 @Service
 @RequiredArgsConstructor
 public class StatisticsServiceImpl implements StatisticsService {
 
-    private final Random random = new Random();
     private final SitesList sites;
+    private final SiteStatisticsRegistry registry;
 
     @Override
     public StatisticsResponse getStatistics() {
-        String[] statuses = { "INDEXED", "FAILED", "INDEXING" };
-        String[] errors = {
-                "Ошибка индексации: главная страница сайта не доступна",
-                "Ошибка индексации: сайт не доступен",
-                ""
-        };
-
         TotalStatistics total = new TotalStatistics();
         total.setSites(sites.getSites().size());
-        total.setIndexing(true);
 
         List<DetailedStatisticsItem> detailed = new ArrayList<>();
-        List<Site> sitesList = sites.getSites();
-        for(int i = 0; i < sitesList.size(); i++) {
-            Site site = sitesList.get(i);
+        for (Site site : sites.getSites()) {
             DetailedStatisticsItem item = new DetailedStatisticsItem();
             item.setName(site.getName());
             item.setUrl(site.getUrl());
-            int pages = random.nextInt(1_000);
-            int lemmas = pages * random.nextInt(1_000);
-            item.setPages(pages);
-            item.setLemmas(lemmas);
-            item.setStatus(statuses[i % 3]);
-            item.setError(errors[i % 3]);
-            item.setStatusTime(System.currentTimeMillis() -
-                    (random.nextInt(10_000)));
-            total.setPages(total.getPages() + pages);
-            total.setLemmas(total.getLemmas() + lemmas);
+
+            SiteStatisticsRegistry.SiteCounters counters = registry.get(site.getUrl());
+            if (counters != null && counters.getStatus() != null) {
+                int pages = (int) counters.getPages();
+                int lemmas = (int) counters.getLemmas();
+                item.setPages(pages);
+                item.setLemmas(lemmas);
+                item.setStatus(counters.getStatus().name());
+                item.setStatusTime(counters.getStatusTime());
+                item.setError(counters.getLastError() != null ? counters.getLastError() : "");
+                total.setPages(total.getPages() + pages);
+                total.setLemmas(total.getLemmas() + lemmas);
+                if (counters.getStatus() == Status.INDEXING) {
+                    total.setIndexing(true);
+                }
+            } else {
+                item.setStatus(Status.FAILED.name());
+                item.setStatusTime(System.currentTimeMillis());
+                item.setError("Сайт ещё не индексировался");
+            }
             detailed.add(item);
         }
 
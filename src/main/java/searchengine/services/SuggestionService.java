@@ -0,0 +1,175 @@
+package searchengine.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import searchengine.dto.search.SuggestionData;
+import searchengine.services.search.PrefixIndex;
+import searchengine.services.search.TopKCollector;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Подсказки для строки поиска: леммы с заданным префиксом, самые частые первыми.
+ * Отвечает из памяти: по каждому сайту и по всем сайтам вместе хранится
+ * {@link PrefixIndex}, а леммы, записанные после его построения, копятся в
+ * небольшой добавке и периодически вливаются в него. Полная перестройка по
+ * таблице lemma идёт по расписанию; между перестройками частоты приблизительны,
+ * например после повторной индексации страницы.
+ */
+@Service
+public class SuggestionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SuggestionService.class);
+    // id сайтов начинаются с 1, поэтому 0 — подсказки по всем сайтам
+    private static final int ALL_SITES = 0;
+    private static final int MERGE_THRESHOLD = 20000;
+
+    private final Map<Integer, Suggestions> indexes = new ConcurrentHashMap<>();
+    private final Map<String, Integer> siteIds = new ConcurrentHashMap<>();
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public List<SuggestionData> suggest(String prefix, String site, int limit) {
+        String normalized = prefix == null ? "" : prefix.trim().toLowerCase(Locale.ROOT).replace('ё', 'е');
+        if (normalized.isEmpty()) {
+            return List.of();
+        }
+        Suggestions suggestions = indexes.get(site == null || site.isBlank() ? ALL_SITES : siteId(site));
+        return suggestions != null ? suggestions.state.find(normalized, limit) : List.of();
+    }
+
+    /**
+     * Учитывает леммы, только что записанные в базу.
+     *
+     * @param frequencies прирост frequency по каждой лемме
+     */
+    public void lemmasIndexed(int siteId, Map<String, Integer> frequencies) {
+        indexes.computeIfAbsent(siteId, id -> new Suggestions()).add(frequencies);
+        indexes.computeIfAbsent(ALL_SITES, id -> new Suggestions()).add(frequencies);
+    }
+
+    @Scheduled(fixedDelayString = "${search-settings.suggest-rebuild-interval-ms:600000}")
+    public void rebuild() {
+        long start = System.nanoTime();
+        Map<Integer, TreeMap<String, Integer>> sites = new HashMap<>();
+        TreeMap<String, Integer> all = new TreeMap<>();
+        try {
+            jdbcTemplate.query("SELECT id, url FROM site", rs -> {
+                siteIds.put(rs.getString("url"), rs.getInt("id"));
+            });
+            jdbcTemplate.query("SELECT site_id, lemma, frequency FROM lemma", rs -> {
+                String lemma = rs.getString("lemma");
+                int frequency = rs.getInt("frequency");
+                sites.computeIfAbsent(rs.getInt("site_id"), id -> new TreeMap<>()).put(lemma, frequency);
+                all.merge(lemma, frequency, Integer::sum);
+            });
+        } catch (DataAccessException e) {
+            logger.warn("Не удалось перестроить индекс подсказок: {}", e.getMessage());
+            return;
+        }
+
+        Map<Integer, Suggestions> rebuilt = new HashMap<>();
+        sites.forEach((siteId, lemmas) -> rebuilt.put(siteId, new Suggestions(PrefixIndex.of(lemmas))));
+        rebuilt.put(ALL_SITES, new Suggestions(PrefixIndex.of(all)));
+        indexes.putAll(rebuilt);
+        indexes.keySet().retainAll(rebuilt.keySet());
+        logger.info("Индекс подсказок перестроен: {} лемм за {} мс", all.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private int siteId(String site) {
+        Integer siteId = siteIds.get(site);
+        if (siteId == null) {
+            siteId = jdbcTemplate.query("SELECT id FROM site WHERE url = ?",
+                    rs -> rs.next() ? rs.getInt(1) : null, site);
+            if (siteId == null) {
+                throw new IllegalArgumentException("Указанный сайт не найден");
+            }
+            siteIds.put(site, siteId);
+        }
+        return siteId;
+    }
+
+    private static class Suggestions {
+        // Читатели берут состояние целиком, поэтому не видят лемму одновременно в base и delta
+        private volatile State state;
+
+        Suggestions() {
+            this(PrefixIndex.empty());
+        }
+
+        Suggestions(PrefixIndex base) {
+            this.state = new State(base, new TreeMap<>());
+        }
+
+        synchronized void add(Map<String, Integer> frequencies) {
+            TreeMap<String, Integer> delta = new TreeMap<>(state.delta());
+            frequencies.forEach((lemma, frequency) -> delta.merge(lemma, frequency, Integer::sum));
+            state = delta.size() > MERGE_THRESHOLD
+                    ? new State(state.base().merge(delta), new TreeMap<>())
+                    : new State(state.base(), delta);
+        }
+    }
+
+    private record State(PrefixIndex base, TreeMap<String, Integer> delta) {
+
+        List<SuggestionData> find(String prefix, int limit) {
+            SortedMap<String, Integer> extra = delta.subMap(prefix, prefix + Character.MAX_VALUE);
+
+            // Номера до base.size() — позиции в base, дальше — леммы только из добавки.
+            // Кандидаты упорядочены по номеру, как при полном проходе диапазона,
+            // поэтому при равных частотах выигрывает та же лемма
+            TreeMap<Integer, Integer> candidates = new TreeMap<>();
+            List<String> added = new ArrayList<>();
+            extra.forEach((lemma, frequency) -> {
+                int i = base.indexOf(lemma);
+                if (i >= 0) {
+                    candidates.put(i, base.frequency(i) + frequency);
+                } else if (frequency > 0) {
+                    candidates.put(base.size() + added.size(), frequency);
+                    added.add(lemma);
+                }
+            });
+            // Леммы base без поправок — от самых частых: после limit-й остальные в ответ уже не попадут
+            int[] taken = {0};
+            base.visitByFrequency(base.rangeStart(prefix), base.rangeEnd(prefix), i -> {
+                if (base.frequency(i) <= 0) {
+                    return false;
+                }
+                if (candidates.putIfAbsent(i, base.frequency(i)) == null) {
+                    taken[0]++;
+                }
+                return taken[0] < limit;
+            });
+
+            TopKCollector top = new TopKCollector(limit);
+            candidates.forEach((id, frequency) -> {
+                if (frequency > 0) {
+                    top.collect(id, frequency);
+                }
+            });
+
+            List<SuggestionData> result = new ArrayList<>();
+            for (TopKCollector.ScoredPage entry : top.results()) {
+                int id = entry.pageId();
+                SuggestionData data = new SuggestionData();
+                data.setLemma(id < base.size() ? base.term(id) : added.get(id - base.size()));
+                data.setFrequency((int) entry.score());
+                result.add(data);
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package searchengine.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import searchengine.config.CrawlerSettings;
+
+import java.net.URI;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Начальные адреса обхода из карт сайта: разрешённые robots.txt страницы
+ * сайта, упорядоченные по lastmod от новых к старым.
+ */
+@Service
+public class UrlDiscoveryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UrlDiscoveryService.class);
+    private static final Comparator<SitemapParser.SitemapEntry> BY_LASTMOD = Comparator.comparing(
+            entry -> entry.lastmod() != null ? entry.lastmod() : Instant.EPOCH);
+
+    @Autowired
+    private RobotsTxtCache robotsTxtCache;
+
+    @Autowired
+    private SitemapParser sitemapParser;
+
+    @Autowired
+    private CrawlerSettings crawlerSettings;
+
+    public RobotsRules getRobotsRules(String siteUrl, String userAgent) {
+        return crawlerSettings.isRespectRobotsTxt()
+                ? robotsTxtCache.get(siteUrl, userAgent)
+                : RobotsRules.allowAll();
+    }
+
+    /**
+     * Разбирает карты сайта потоково, удерживая в памяти не больше
+     * crawler-settings.max-sitemap-urls самых свежих адресов. После отмены
+     * token возвращает то, что успел собрать.
+     */
+    public List<String> discover(String siteUrl, RobotsRules robots, String userAgent, CancellationToken token) {
+        int limit = crawlerSettings.getMaxSitemapUrls();
+        if (limit <= 0) {
+            return List.of();
+        }
+        List<String> sitemaps = new ArrayList<>(robots.getSitemaps());
+        if (sitemaps.isEmpty()) {
+            URI site = URI.create(siteUrl);
+            sitemaps.add(site.resolve("/sitemap.xml").toString());
+        }
+
+        PriorityQueue<SitemapParser.SitemapEntry> newest = new PriorityQueue<>(BY_LASTMOD);
+        for (String sitemap : sitemaps) {
+            if (token.isCancelled()) {
+                break;
+            }
+            sitemapParser.parse(sitemap, userAgent, token, entry -> {
+                if (entry.url().startsWith(siteUrl) && isAllowed(robots, entry.url())) {
+                    newest.add(entry);
+                    if (newest.size() > limit) {
+                        newest.poll();
+                    }
+                }
+                return !token.isCancelled();
+            });
+        }
+
+        List<SitemapParser.SitemapEntry> entries = new ArrayList<>(newest);
+        entries.sort(BY_LASTMOD.reversed());
+        logger.info("Из карт сайта {} получено {} адресов", siteUrl, entries.size());
+        return entries.stream().map(SitemapParser.SitemapEntry::url).toList();
+    }
+
+    /**
+     * Некорректный &lt;loc&gt; (пробел, | и т.п.) пропускается, а не обрывает разбор всей карты.
+     */
+    private static boolean isAllowed(RobotsRules robots, String url) {
+        try {
+            return robots.isAllowed(pathOf(url));
+        } catch (IllegalArgumentException e) {
+            logger.debug("Некорректный адрес в карте сайта пропущен: {} ({})", url, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException адрес не является корректным URI
+     */
+    public static String pathOf(String url) {
+        URI uri = URI.create(url);
+        String path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+        return uri.getRawQuery() != null ? path + "?" + uri.getRawQuery() : path;
+    }
+}
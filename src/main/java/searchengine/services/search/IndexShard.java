@@ -0,0 +1,149 @@
+package searchengine.services.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Индекс одного сайта в памяти: списки страниц по леммам. Неизменяем —
+ * при переиндексации сайта шард строится заново и подменяется целиком.
+ */
+public final class IndexShard {
+
+    // Как часто проверять прерывание при обходе пересечения
+    private static final int INTERRUPT_CHECK_INTERVAL = 256;
+
+    private final int siteId;
+    private final Map<String, PostingList> postings;
+
+    public IndexShard(int siteId, Map<String, PostingList> postings) {
+        this.siteId = siteId;
+        this.postings = postings;
+    }
+
+    public int getSiteId() {
+        return siteId;
+    }
+
+    public int getLemmaCount() {
+        return postings.size();
+    }
+
+    /**
+     * Лучшие k страниц сайта и общее число подходящих страниц.
+     *
+     * @throws CancellationException если поток прерван, например по таймауту шарда
+     */
+    public Result search(List<QueryTerm> terms, Set<String> lemmas, SearchMode mode, int k) {
+        List<PostingList> lists = new ArrayList<>(lemmas.size());
+        for (String lemma : lemmas) {
+            PostingList list = postings.get(lemma);
+            if (list == null) {
+                return new Result(siteId, 0, new TopKCollector.ScoredPage[0]); // лемма на сайте не встречается
+            }
+            lists.add(list);
+        }
+
+        TopKCollector collector = new TopKCollector(k);
+        int count = 0;
+        int scanned = 0;
+        for (int pageId : PostingList.intersectAll(lists)) {
+            if (++scanned % INTERRUPT_CHECK_INTERVAL == 0 && Thread.currentThread().isInterrupted()) {
+                throw new CancellationException("Поиск в шарде сайта " + siteId + " прерван");
+            }
+            float score = 0;
+            for (PostingList list : lists) {
+                score += list.rank(list.indexOf(pageId));
+            }
+            int[][] positions = mode != SearchMode.RANK && terms.size() > 1 ? termPositions(terms, pageId) : null;
+            // Без позиций хотя бы одного слова страница остаётся совпадением по всем словам:
+            // фразу и близость проверить нечем, а отбрасывать её нельзя
+            if (positions != null) {
+                if (mode == SearchMode.PHRASE) {
+                    if (!containsPhrase(terms, positions)) {
+                        continue;
+                    }
+                } else {
+                    score *= proximityBoost(positions);
+                }
+            }
+            collector.collect(pageId, score);
+            count++;
+        }
+        return new Result(siteId, count, collector.results());
+    }
+
+    /**
+     * Позиции каждого слова запроса на странице. У слова с несколькими леммами
+     * они совпадают, поэтому берём первую.
+     *
+     * @return null, если для какого-то слова позиции на этой странице не сохранялись
+     */
+    private int[][] termPositions(List<QueryTerm> terms, int pageId) {
+        int[][] positions = new int[terms.size()][];
+        for (int t = 0; t < terms.size(); t++) {
+            PostingList list = postings.get(terms.get(t).lemmas().get(0));
+            int index = list.indexOf(pageId);
+            if (!list.hasPositions(index)) {
+                return null;
+            }
+            positions[t] = list.positions(index);
+        }
+        return positions;
+    }
+
+    private static boolean containsPhrase(List<QueryTerm> terms, int[][] positions) {
+        int first = terms.get(0).offset();
+        for (int start : positions[0]) {
+            boolean matched = true;
+            for (int t = 1; t < terms.size() && matched; t++) {
+                int expected = start + terms.get(t).offset() - first;
+                matched = Arrays.binarySearch(positions[t], expected) >= 0;
+            }
+            if (matched) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Множитель от 1 до 2: чем короче окно текста, в котором встречаются все
+     * слова запроса, тем он больше. Без позиций страница получает 1.
+     */
+    private static double proximityBoost(int[][] positions) {
+        int terms = positions.length;
+        int[] cursor = new int[terms];
+        for (int[] termPositions : positions) {
+            if (termPositions.length == 0) {
+                return 1;
+            }
+        }
+        int best = Integer.MAX_VALUE;
+        while (true) {
+            int min = Integer.MAX_VALUE;
+            int max = Integer.MIN_VALUE;
+            int minTerm = 0;
+            for (int t = 0; t < terms; t++) {
+                int position = positions[t][cursor[t]];
+                if (position < min) {
+                    min = position;
+                    minTerm = t;
+                }
+                max = Math.max(max, position);
+            }
+            best = Math.min(best, max - min + 1);
+            if (++cursor[minTerm] >= positions[minTerm].length) {
+                break;
+            }
+        }
+        int span = Math.max(best, terms);
+        return 1 + (terms - 1) / (double) (span - 1);
+    }
+
+    public record Result(int siteId, int count, TopKCollector.ScoredPage[] top) {
+    }
+}
@@ -0,0 +1,63 @@
+package searchengine.services.search;
+
+import java.util.Arrays;
+
+/**
+ * Позиции леммы на странице в виде varint: число позиций, затем разности
+ * соседних позиций. Короткие разности занимают один байт, поэтому позиции
+ * обычно весят меньше самой строки index.
+ */
+public final class PositionCodec {
+
+    private PositionCodec() {
+    }
+
+    /**
+     * @param positions позиции по возрастанию
+     */
+    public static byte[] encode(int[] positions) {
+        byte[] buffer = new byte[5 * (positions.length + 1)];
+        int n = writeVarint(buffer, 0, positions.length);
+        int previous = 0;
+        for (int position : positions) {
+            n = writeVarint(buffer, n, position - previous);
+            previous = position;
+        }
+        return Arrays.copyOf(buffer, n);
+    }
+
+    public static int[] decode(byte[] data) {
+        if (data == null || data.length == 0) {
+            return new int[0];
+        }
+        int[] cursor = {0};
+        int[] positions = new int[readVarint(data, cursor)];
+        int previous = 0;
+        for (int i = 0; i < positions.length; i++) {
+            previous += readVarint(data, cursor);
+            positions[i] = previous;
+        }
+        return positions;
+    }
+
+    private static int writeVarint(byte[] buffer, int offset, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer[offset++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[offset++] = (byte) value;
+        return offset;
+    }
+
+    private static int readVarint(byte[] data, int[] cursor) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = data[cursor[0]++];
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+}
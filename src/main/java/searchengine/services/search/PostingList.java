@@ -0,0 +1,207 @@
+package searchengine.services.search;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Список страниц, на которых встречается лемма, отсортированный по page_id,
+ * вместе с rank из таблицы index и, если есть, позициями леммы на странице.
+ */
+public final class PostingList {
+
+    // При таком соотношении длин выгоднее искать элементы короткого списка экспоненциальным поиском
+    private static final int GALLOP_RATIO = 32;
+
+    private final int[] pageIds;
+    private final float[] ranks;
+    private final byte[][] positions;
+
+    private PostingList(int[] pageIds, float[] ranks, byte[][] positions) {
+        this.pageIds = pageIds;
+        this.ranks = ranks;
+        this.positions = positions;
+    }
+
+    public static PostingList of(int[] pageIds, float[] ranks) {
+        return of(pageIds, ranks, null);
+    }
+
+    /**
+     * @param positions позиции в формате {@link PositionCodec} или null без позиционного индекса
+     */
+    public static PostingList of(int[] pageIds, float[] ranks, byte[][] positions) {
+        if (pageIds.length != ranks.length || (positions != null && positions.length != pageIds.length)) {
+            throw new IllegalArgumentException("Количество страниц и рангов не совпадает");
+        }
+        Integer[] order = new Integer[pageIds.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingInt(i -> pageIds[i]));
+        int[] sortedIds = new int[pageIds.length];
+        float[] sortedRanks = new float[ranks.length];
+        byte[][] sortedPositions = positions != null ? new byte[positions.length][] : null;
+        for (int i = 0; i < order.length; i++) {
+            sortedIds[i] = pageIds[order[i]];
+            sortedRanks[i] = ranks[order[i]];
+            if (sortedPositions != null) {
+                sortedPositions[i] = positions[order[i]];
+            }
+        }
+        return new PostingList(sortedIds, sortedRanks, sortedPositions);
+    }
+
+    public int size() {
+        return pageIds.length;
+    }
+
+    public int pageId(int i) {
+        return pageIds[i];
+    }
+
+    public float rank(int i) {
+        return ranks[i];
+    }
+
+    public boolean hasPositions() {
+        return positions != null;
+    }
+
+    /**
+     * Сохранены ли позиции для i-й страницы: страницы, проиндексированные
+     * до включения позиционного индекса, их не имеют.
+     */
+    public boolean hasPositions(int i) {
+        return positions != null && positions[i] != null;
+    }
+
+    /**
+     * Позиции леммы на i-й странице; пусто, если они не сохранялись.
+     */
+    public int[] positions(int i) {
+        return positions != null ? PositionCodec.decode(positions[i]) : new int[0];
+    }
+
+    /**
+     * Позиция страницы в списке или отрицательное значение, если её нет.
+     */
+    public int indexOf(int pageId) {
+        return Arrays.binarySearch(pageIds, pageId);
+    }
+
+    public int[] pageIds() {
+        return pageIds.clone();
+    }
+
+    /**
+     * Пересечение двух отсортированных массивов page_id.
+     */
+    public static int[] intersect(int[] a, int[] b) {
+        if (a.length > b.length) {
+            int[] tmp = a;
+            a = b;
+            b = tmp;
+        }
+        if (a.length == 0) {
+            return new int[0];
+        }
+        return (long) a.length * GALLOP_RATIO < b.length ? gallop(a, b) : merge(a, b);
+    }
+
+    /**
+     * Пересечение нескольких списков начиная с самого короткого.
+     */
+    public static int[] intersectAll(List<PostingList> lists) {
+        if (lists.isEmpty()) {
+            return new int[0];
+        }
+        List<PostingList> sorted = lists.stream()
+                .sorted(Comparator.comparingInt(PostingList::size))
+                .toList();
+        int[] result = sorted.get(0).pageIds;
+        for (int i = 1; i < sorted.size() && result.length > 0; i++) {
+            result = intersect(result, sorted.get(i).pageIds);
+        }
+        return result == sorted.get(0).pageIds ? result.clone() : result;
+    }
+
+    /**
+     * Накопление списка по строкам из базы в произвольном порядке page_id.
+     * Массив позиций заводится только при первой строке с позициями, так что
+     * без позиционного индекса список получается без них и {@link #hasPositions()} — false.
+     */
+    public static final class Builder {
+        private int[] pageIds = new int[16];
+        private float[] ranks = new float[16];
+        private byte[][] positions;
+        private int size;
+
+        public void add(int pageId, float rank, byte[] pagePositions) {
+            if (size == pageIds.length) {
+                pageIds = Arrays.copyOf(pageIds, size * 2);
+                ranks = Arrays.copyOf(ranks, size * 2);
+                if (positions != null) {
+                    positions = Arrays.copyOf(positions, size * 2);
+                }
+            }
+            if (pagePositions != null && positions == null) {
+                positions = new byte[pageIds.length][];
+            }
+            pageIds[size] = pageId;
+            ranks[size] = rank;
+            if (positions != null) {
+                positions[size] = pagePositions;
+            }
+            size++;
+        }
+
+        public PostingList build() {
+            return PostingList.of(Arrays.copyOf(pageIds, size), Arrays.copyOf(ranks, size),
+                    positions != null ? Arrays.copyOf(positions, size) : null);
+        }
+    }
+
+    private static int[] merge(int[] a, int[] b) {
+        int[] out = new int[a.length];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                out[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    private static int[] gallop(int[] small, int[] large) {
+        int[] out = new int[small.length];
+        int n = 0;
+        int low = 0;
+        for (int value : small) {
+            int step = 1;
+            int high = low;
+            while (high < large.length && large[high] < value) {
+                low = high + 1;
+                high += step;
+                step <<= 1;
+            }
+            int pos = Arrays.binarySearch(large, low, Math.min(high + 1, large.length), value);
+            if (pos >= 0) {
+                out[n++] = value;
+                low = pos + 1;
+            } else {
+                low = -pos - 1;
+            }
+            if (low >= large.length) {
+                break;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+}
@@ -0,0 +1,163 @@
+package searchengine.services.search;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.SortedMap;
+import java.util.function.IntPredicate;
+
+/**
+ * Неизменяемый отсортированный массив лемм с частотами. Все леммы с заданным
+ * префиксом лежат подряд, и их диапазон находится двумя бинарными поисками.
+ * Дерево отрезков по частотам позволяет перебирать диапазон от самых частых
+ * лемм, не просматривая его целиком: для короткого префикса это десятки тысяч лемм.
+ */
+public final class PrefixIndex {
+
+    private static final PrefixIndex EMPTY = new PrefixIndex(new String[0], new int[0]);
+
+    private final String[] terms;
+    private final int[] frequencies;
+    // Дерево отрезков снизу вверх: листья в [n, 2n), в узле — позиция самой частой леммы отрезка
+    private final int[] maxTree;
+
+    private PrefixIndex(String[] terms, int[] frequencies) {
+        this.terms = terms;
+        this.frequencies = frequencies;
+        int n = frequencies.length;
+        this.maxTree = new int[2 * n];
+        for (int i = 0; i < n; i++) {
+            maxTree[n + i] = i;
+        }
+        for (int node = n - 1; node > 0; node--) {
+            maxTree[node] = better(maxTree[2 * node], maxTree[2 * node + 1]);
+        }
+    }
+
+    public static PrefixIndex empty() {
+        return EMPTY;
+    }
+
+    public static PrefixIndex of(SortedMap<String, Integer> frequencies) {
+        String[] terms = new String[frequencies.size()];
+        int[] values = new int[frequencies.size()];
+        int i = 0;
+        for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+            terms[i] = entry.getKey();
+            values[i++] = entry.getValue();
+        }
+        return new PrefixIndex(terms, values);
+    }
+
+    public int size() {
+        return terms.length;
+    }
+
+    public String term(int i) {
+        return terms[i];
+    }
+
+    public int frequency(int i) {
+        return frequencies[i];
+    }
+
+    public int indexOf(String term) {
+        return Arrays.binarySearch(terms, term);
+    }
+
+    /**
+     * Первая позиция, на которой может стоять лемма с префиксом.
+     */
+    public int rangeStart(String prefix) {
+        int i = Arrays.binarySearch(terms, prefix);
+        return i >= 0 ? i : -i - 1;
+    }
+
+    /**
+     * Позиция сразу за последней леммой с префиксом.
+     */
+    public int rangeEnd(String prefix) {
+        int i = Arrays.binarySearch(terms, prefix + Character.MAX_VALUE);
+        return i >= 0 ? i : -i - 1;
+    }
+
+    /**
+     * Обходит позиции [from, to) по убыванию частоты, при равенстве — по
+     * возрастанию позиции, пока visitor возвращает true. Каждый шаг — один
+     * запрос к дереву отрезков, так что первые k лемм стоят O(k log n).
+     */
+    public void visitByFrequency(int from, int to, IntPredicate visitor) {
+        if (from >= to) {
+            return;
+        }
+        // {начало, конец, позиция максимума}; у отрезков в очереди нет общих позиций
+        PriorityQueue<int[]> ranges = new PriorityQueue<>((a, b) -> better(a[2], b[2]) == a[2] ? -1 : 1);
+        ranges.add(new int[]{from, to, maxIn(from, to)});
+        while (!ranges.isEmpty()) {
+            int[] range = ranges.poll();
+            int top = range[2];
+            if (!visitor.test(top)) {
+                return;
+            }
+            if (range[0] < top) {
+                ranges.add(new int[]{range[0], top, maxIn(range[0], top)});
+            }
+            if (top + 1 < range[1]) {
+                ranges.add(new int[]{top + 1, range[1], maxIn(top + 1, range[1])});
+            }
+        }
+    }
+
+    /**
+     * Позиция самой частой леммы в непустом отрезке [from, to).
+     */
+    private int maxIn(int from, int to) {
+        int n = frequencies.length;
+        int best = from;
+        for (int l = from + n, r = to + n; l < r; l >>= 1, r >>= 1) {
+            if ((l & 1) == 1) {
+                best = better(best, maxTree[l++]);
+            }
+            if ((r & 1) == 1) {
+                best = better(best, maxTree[--r]);
+            }
+        }
+        return best;
+    }
+
+    private int better(int a, int b) {
+        if (frequencies[a] != frequencies[b]) {
+            return frequencies[a] > frequencies[b] ? a : b;
+        }
+        return Math.min(a, b);
+    }
+
+    /**
+     * Новый индекс с добавленными частотами; леммы с нулевой частотой выбрасываются.
+     */
+    public PrefixIndex merge(SortedMap<String, Integer> delta) {
+        String[] mergedTerms = new String[terms.length + delta.size()];
+        int[] mergedFrequencies = new int[mergedTerms.length];
+        int n = 0;
+        int i = 0;
+        for (Map.Entry<String, Integer> entry : delta.entrySet()) {
+            while (i < terms.length && terms[i].compareTo(entry.getKey()) < 0) {
+                mergedTerms[n] = terms[i];
+                mergedFrequencies[n++] = frequencies[i++];
+            }
+            int frequency = entry.getValue();
+            if (i < terms.length && terms[i].equals(entry.getKey())) {
+                frequency += frequencies[i++];
+            }
+            if (frequency > 0) {
+                mergedTerms[n] = entry.getKey();
+                mergedFrequencies[n++] = frequency;
+            }
+        }
+        while (i < terms.length) {
+            mergedTerms[n] = terms[i];
+            mergedFrequencies[n++] = frequencies[i++];
+        }
+        return new PrefixIndex(Arrays.copyOf(mergedTerms, n), Arrays.copyOf(mergedFrequencies, n));
+    }
+}
@@ -0,0 +1,9 @@
+package searchengine.services.search;
+
+import java.util.List;
+
+/**
+ * Слово запроса: его позиция в запросе и леммы.
+ */
+public record QueryTerm(int offset, List<String> lemmas) {
+}
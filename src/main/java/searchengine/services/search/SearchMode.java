@@ -0,0 +1,10 @@
+package searchengine.services.search;
+
+/**
+ * RANK — только сумма rank, PROXIMITY — с бонусом за близость слов запроса,
+ * PHRASE — только страницы с точной фразой; страницы без сохранённых позиций
+ * проходят, как в RANK, по наличию всех слов.
+ */
+public enum SearchMode {
+    RANK, PROXIMITY, PHRASE
+}
@@ -0,0 +1,99 @@
+package searchengine.services.search;
+
+import java.util.Arrays;
+
+/**
+ * Хранит k страниц с наибольшей релевантностью в min-куче на массивах,
+ * не сортируя весь список найденных страниц.
+ */
+public final class TopKCollector {
+
+    private final int k;
+    private final int[] pageIds;
+    private final float[] scores;
+    private int size;
+
+    public TopKCollector(int k) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("k должно быть положительным");
+        }
+        this.k = k;
+        this.pageIds = new int[k];
+        this.scores = new float[k];
+    }
+
+    public void collect(int pageId, float score) {
+        if (size < k) {
+            pageIds[size] = pageId;
+            scores[size] = score;
+            siftUp(size++);
+        } else if (score > scores[0]) {
+            pageIds[0] = pageId;
+            scores[0] = score;
+            siftDown(0);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Минимальная релевантность, которую нужно превысить, чтобы попасть в результат.
+     */
+    public float threshold() {
+        return size < k ? Float.NEGATIVE_INFINITY : scores[0];
+    }
+
+    /**
+     * Результаты по убыванию релевантности; при равенстве — по возрастанию page_id.
+     */
+    public ScoredPage[] results() {
+        ScoredPage[] result = new ScoredPage[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = new ScoredPage(pageIds[i], scores[i]);
+        }
+        Arrays.sort(result, (a, b) -> a.score() != b.score()
+                ? Float.compare(b.score(), a.score())
+                : Integer.compare(a.pageId(), b.pageId()));
+        return result;
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (scores[parent] <= scores[i]) {
+                break;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= size) {
+                break;
+            }
+            int smallest = left + 1 < size && scores[left + 1] < scores[left] ? left + 1 : left;
+            if (scores[i] <= scores[smallest]) {
+                break;
+            }
+            swap(i, smallest);
+            i = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        int id = pageIds[a];
+        pageIds[a] = pageIds[b];
+        pageIds[b] = id;
+        float score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+    }
+
+    public record ScoredPage(int pageId, float score) {
+    }
+}
@@ -0,0 +1,79 @@
+package searchengine.services.snapshot;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Чтение примитивов, записанных {@link SnapshotOutput}.
+ */
+public class SnapshotInput extends DataInputStream {
+
+    public SnapshotInput(InputStream in) {
+        super(in);
+    }
+
+    public long readVarint() throws IOException {
+        long value = 0;
+        int shift = 0;
+        int b;
+        do {
+            if (shift > 63) {
+                throw new IOException("Повреждённый снимок: слишком длинное число");
+            }
+            b = readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    public int readVarintInt() throws IOException {
+        long value = readVarint();
+        if (value < 0 || value > Integer.MAX_VALUE) {
+            throw new IOException("Повреждённый снимок: число " + Long.toUnsignedString(value) + " вне диапазона int");
+        }
+        return (int) value;
+    }
+
+    /**
+     * @param maxBytes наибольшая длина в байтах UTF-8, которую примет столбец
+     */
+    public String readString(int maxBytes) throws IOException {
+        return new String(readByteArray(maxBytes), StandardCharsets.UTF_8);
+    }
+
+    public String readNullableString(int maxBytes) throws IOException {
+        return readBoolean() ? readString(maxBytes) : null;
+    }
+
+    /**
+     * Длина проверяется до выделения массива: испорченный префикс длины
+     * не должен приводить к OutOfMemoryError.
+     *
+     * @param maxLength наибольшая длина, которую примет столбец
+     */
+    public byte[] readByteArray(int maxLength) throws IOException {
+        int length = readVarintInt();
+        if (length > maxLength) {
+            throw new IOException("Повреждённый снимок: длина " + length + " больше допустимой " + maxLength);
+        }
+        byte[] value = new byte[length];
+        readFully(value);
+        return value;
+    }
+
+    public byte[] readNullableBytes(int maxLength) throws IOException {
+        return readBoolean() ? readByteArray(maxLength) : null;
+    }
+
+    public Long readNullableLong() throws IOException {
+        return readBoolean() ? readLong() : null;
+    }
+
+    public float readRank() throws IOException {
+        long encoded = readVarint();
+        return encoded == 0 ? readFloat() : encoded - 1;
+    }
+}
@@ -0,0 +1,68 @@
+package searchengine.services.snapshot;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Примитивы формата снимка: целые числа в varint, строки и массивы байт
+ * с длиной, необязательные значения с признаком наличия.
+ */
+public class SnapshotOutput extends DataOutputStream {
+
+    public SnapshotOutput(OutputStream out) {
+        super(out);
+    }
+
+    public void writeVarint(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        write((int) value);
+    }
+
+    public void writeString(String value) throws IOException {
+        writeByteArray(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public void writeNullableString(String value) throws IOException {
+        writeBoolean(value != null);
+        if (value != null) {
+            writeString(value);
+        }
+    }
+
+    public void writeByteArray(byte[] value) throws IOException {
+        writeVarint(value.length);
+        write(value);
+    }
+
+    public void writeNullableBytes(byte[] value) throws IOException {
+        writeBoolean(value != null);
+        if (value != null) {
+            writeByteArray(value);
+        }
+    }
+
+    public void writeNullableLong(Long value) throws IOException {
+        writeBoolean(value != null);
+        if (value != null) {
+            writeLong(value);
+        }
+    }
+
+    /**
+     * rank в индексе — число вхождений леммы, поэтому целые значения пишутся
+     * varint со сдвигом на 1, а 0 означает, что дальше идёт float целиком.
+     */
+    public void writeRank(float rank) throws IOException {
+        if (rank >= 0 && rank == (int) rank) {
+            writeVarint((long) rank + 1);
+        } else {
+            writeVarint(0);
+            writeFloat(rank);
+        }
+    }
+}
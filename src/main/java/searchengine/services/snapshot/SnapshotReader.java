@@ -0,0 +1,171 @@
+package searchengine.services.snapshot;
+
+import net.jpountz.lz4.LZ4FrameInputStream;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Чтение снимка, записанного {@link SnapshotWriter}. Кроме формата проверяет
+ * ссылки между секциями: лемма и страница — на сайт из снимка, duplicate_of —
+ * на страницу из снимка, запись индекса — на лемму и страницу одного сайта.
+ * Загрузка полагается на эту проверку и очищает таблицы только после неё.
+ * Любое нарушение, обрыв потока
+ * или несовпадение контрольной суммы LZ4 — IOException.
+ */
+public final class SnapshotReader {
+
+    // Пределы длины в байтах — по столбцам таблиц: VARCHAR(255) в utf8mb4,
+    // TEXT и BLOB, MEDIUMBLOB
+    static final int MAX_VARCHAR = 255 * 4;
+    static final int MAX_TEXT = 65_535;
+    static final int MAX_MEDIUMBLOB = 16_777_215;
+
+    private SnapshotReader() {
+    }
+
+    /**
+     * @return время снятия снимка
+     */
+    public static long read(InputStream source, SnapshotSink sink) throws IOException {
+        SnapshotInput in = new SnapshotInput(new LZ4FrameInputStream(new BufferedInputStream(source)));
+        if (in.readInt() != SnapshotWriter.MAGIC || in.readInt() != SnapshotWriter.VERSION) {
+            throw new IOException("Неизвестный формат снимка индекса");
+        }
+        long createdAt = in.readLong();
+
+        Set<Integer> siteIds = new HashSet<>();
+        while (in.readBoolean()) {
+            SnapshotSink.SiteRow site = new SnapshotSink.SiteRow(in.readVarintInt(), in.readString(MAX_VARCHAR),
+                    in.readNullableLong(), in.readNullableString(MAX_TEXT), in.readString(MAX_VARCHAR),
+                    in.readString(MAX_VARCHAR), in.readVarint(), in.readVarint());
+            if (!siteIds.add(site.id())) {
+                throw corrupted("сайт " + site.id() + " повторяется");
+            }
+            sink.site(site);
+        }
+
+        List<String> dictionary = readDictionary(in);
+        // id леммы и страницы -> сайт: запись индекса должна связывать лемму и страницу одного сайта
+        Map<Integer, Integer> lemmaSites = new HashMap<>();
+        int lemmaId = 0;
+        while (in.readBoolean()) {
+            lemmaId = next(lemmaId, in.readVarint());
+            int siteId = site(in.readVarintInt(), siteIds);
+            int number = in.readVarintInt();
+            if (number >= dictionary.size()) {
+                throw corrupted("нет леммы номер " + number + " в словаре");
+            }
+            lemmaSites.put(lemmaId, siteId);
+            sink.lemma(new SnapshotSink.LemmaRow(lemmaId, siteId, dictionary.get(number), in.readVarintInt()));
+        }
+
+        Map<Integer, Integer> pageSites = new HashMap<>();
+        List<Integer> duplicateTargets = new ArrayList<>();
+        int pageId = 0;
+        while (in.readBoolean()) {
+            pageId = next(pageId, in.readVarint());
+            int siteId = site(in.readVarintInt(), siteIds);
+            String path = in.readString(MAX_TEXT);
+            int code = in.readVarintInt();
+            String codec = in.readString(MAX_VARCHAR);
+            byte[] content = in.readByteArray(MAX_MEDIUMBLOB);
+            byte[] text = in.readNullableBytes(MAX_MEDIUMBLOB);
+            Long simhash = in.readNullableLong();
+            long duplicateOf = in.readVarint();
+            pageSites.put(pageId, siteId);
+            Integer duplicateTarget = duplicateOf > 0 ? toInt(duplicateOf - 1) : null;
+            if (duplicateTarget != null) {
+                duplicateTargets.add(duplicateTarget);
+            }
+            sink.page(new SnapshotSink.PageRow(pageId, siteId, path, code, codec, content, text, simhash,
+                    duplicateTarget));
+        }
+        // duplicate_of может ссылаться и на страницу дальше по файлу, поэтому проверяем после секции
+        for (int target : duplicateTargets) {
+            if (!pageSites.containsKey(target)) {
+                throw corrupted("нет страницы " + target + ", указанной в duplicate_of");
+            }
+        }
+
+        int postingLemmaId = 0;
+        while (in.readBoolean()) {
+            postingLemmaId = next(postingLemmaId, in.readVarint());
+            Integer lemmaSite = lemmaSites.get(postingLemmaId);
+            if (lemmaSite == null) {
+                throw corrupted("нет леммы " + postingLemmaId);
+            }
+            int postingPageId = 0;
+            long delta;
+            while ((delta = in.readVarint()) != 0) {
+                postingPageId = toInt(postingPageId + delta - 1);
+                Integer pageSite = pageSites.get(postingPageId);
+                if (pageSite == null) {
+                    throw corrupted("нет страницы " + postingPageId);
+                }
+                if (!pageSite.equals(lemmaSite)) {
+                    throw corrupted("лемма " + postingLemmaId + " и страница " + postingPageId
+                            + " относятся к разным сайтам");
+                }
+                sink.posting(new SnapshotSink.PostingRow(postingLemmaId, postingPageId, in.readRank(),
+                        in.readNullableBytes(MAX_TEXT)));
+            }
+        }
+        if (in.read() != -1) {
+            throw corrupted("лишние данные после секции индекса");
+        }
+        return createdAt;
+    }
+
+    private static List<String> readDictionary(SnapshotInput in) throws IOException {
+        int size = in.readVarintInt();
+        // Размер из файла не используем для выделения памяти заранее: он может быть испорчен
+        List<String> dictionary = new ArrayList<>(Math.min(size, 1 << 16));
+        String previous = "";
+        for (int i = 0; i < size; i++) {
+            int shared = in.readVarintInt();
+            if (shared > previous.length()) {
+                throw corrupted("общий префикс длиннее предыдущей леммы");
+            }
+            previous = previous.substring(0, shared) + in.readString(MAX_VARCHAR);
+            if (previous.getBytes(StandardCharsets.UTF_8).length > MAX_VARCHAR) {
+                throw corrupted("лемма длиннее " + MAX_VARCHAR + " байт");
+            }
+            dictionary.add(previous);
+        }
+        return dictionary;
+    }
+
+    private static int next(int previous, long delta) throws IOException {
+        if (delta <= 0) {
+            throw corrupted("id должны идти по возрастанию");
+        }
+        return toInt(previous + delta);
+    }
+
+    private static int site(int siteId, Set<Integer> siteIds) throws IOException {
+        if (!siteIds.contains(siteId)) {
+            throw corrupted("нет сайта " + siteId);
+        }
+        return siteId;
+    }
+
+    private static int toInt(long value) throws IOException {
+        if (value < 0 || value > Integer.MAX_VALUE) {
+            throw corrupted("id вне диапазона: " + value);
+        }
+        return (int) value;
+    }
+
+    private static IOException corrupted(String detail) {
+        return new IOException("Повреждённый снимок: " + detail);
+    }
+}
@@ -0,0 +1,43 @@
+package searchengine.services.snapshot;
+
+import java.io.IOException;
+
+/**
+ * Получатель строк, прочитанных {@link SnapshotReader}, в порядке секций
+ * снимка: сайты, леммы, страницы, записи индекса. По умолчанию строки
+ * пропускаются, так что пустой получатель только проверяет снимок.
+ */
+public interface SnapshotSink {
+
+    default void site(SiteRow site) throws IOException {
+    }
+
+    default void lemma(LemmaRow lemma) throws IOException {
+    }
+
+    default void page(PageRow page) throws IOException {
+    }
+
+    default void posting(PostingRow posting) throws IOException {
+    }
+
+    /**
+     * @param statusTime миллисекунды эпохи или null
+     */
+    record SiteRow(int id, String status, Long statusTime, String lastError, String url, String name,
+                   long pageCount, long lemmaCount) {
+    }
+
+    record LemmaRow(int id, int siteId, String lemma, int frequency) {
+    }
+
+    record PageRow(int id, int siteId, String path, int code, String contentCodec, byte[] content, byte[] text,
+                   Long simhash, Integer duplicateOf) {
+    }
+
+    /**
+     * @param positions позиции в формате PositionCodec или null без позиционного индекса
+     */
+    record PostingRow(int lemmaId, int pageId, float rank, byte[] positions) {
+    }
+}
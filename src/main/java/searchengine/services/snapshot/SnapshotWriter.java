@@ -0,0 +1,169 @@
+package searchengine.services.snapshot;
+
+import net.jpountz.lz4.LZ4FrameOutputStream;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedSet;
+
+/**
+ * Запись снимка индекса. Формат: MAGIC, VERSION, время снятия, затем секции
+ * сайтов, лемм, страниц и индекса, всё в кадре LZ4 с контрольной суммой.
+ * Каждой записи секции предшествует true, секция заканчивается false.
+ * Строки лемм вынесены в словарь (отсортирован, общие префиксы соседних лемм
+ * не повторяются), записи lemma ссылаются на него номером. Id лемм и страниц
+ * идут по возрастанию разностями. Индекс сгруппирован по леммам: true,
+ * разность lemma_id, затем страницы (разность page_id + 1, rank, позиции)
+ * и 0 в конце списка леммы.
+ * <p>
+ * Секции пишутся строго по порядку: сайты, словарь и леммы, страницы, индекс.
+ */
+public class SnapshotWriter implements Closeable {
+
+    static final int MAGIC = 0x534E4150; // "SNAP"
+    static final int VERSION = 1;
+
+    private final SnapshotOutput out;
+    private final Map<String, Integer> dictionary = new HashMap<>();
+    private int previousLemmaId;
+    private int previousPageId;
+    private int postingLemmaId;
+    private int postingPageId;
+
+    public SnapshotWriter(OutputStream target, long createdAt) throws IOException {
+        this.out = new SnapshotOutput(new LZ4FrameOutputStream(new BufferedOutputStream(target),
+                LZ4FrameOutputStream.BLOCKSIZE.SIZE_4MB,
+                LZ4FrameOutputStream.FLG.Bits.BLOCK_INDEPENDENCE,
+                LZ4FrameOutputStream.FLG.Bits.CONTENT_CHECKSUM));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(createdAt);
+    }
+
+    public void site(SnapshotSink.SiteRow site) throws IOException {
+        out.writeBoolean(true);
+        out.writeVarint(site.id());
+        out.writeString(site.status());
+        out.writeNullableLong(site.statusTime());
+        out.writeNullableString(site.lastError());
+        out.writeString(site.url());
+        out.writeString(site.name());
+        out.writeVarint(site.pageCount());
+        out.writeVarint(site.lemmaCount());
+    }
+
+    public void endSites() throws IOException {
+        out.writeBoolean(false);
+    }
+
+    /**
+     * Словарь всех лемм снимка; пишется перед первой леммой.
+     */
+    public void dictionary(SortedSet<String> lemmas) throws IOException {
+        out.writeVarint(lemmas.size());
+        String previous = "";
+        for (String lemma : lemmas) {
+            int shared = sharedPrefix(previous, lemma);
+            out.writeVarint(shared);
+            out.writeString(lemma.substring(shared));
+            dictionary.put(lemma, dictionary.size());
+            previous = lemma;
+        }
+    }
+
+    public void lemma(SnapshotSink.LemmaRow lemma) throws IOException {
+        Integer number = dictionary.get(lemma.lemma());
+        if (number == null) {
+            throw new IllegalArgumentException("Лемма \"" + lemma.lemma() + "\" не записана в словарь");
+        }
+        out.writeBoolean(true);
+        out.writeVarint(increment(previousLemmaId, lemma.id()));
+        out.writeVarint(lemma.siteId());
+        out.writeVarint(number);
+        out.writeVarint(lemma.frequency());
+        previousLemmaId = lemma.id();
+    }
+
+    public void endLemmas() throws IOException {
+        out.writeBoolean(false);
+    }
+
+    public void page(SnapshotSink.PageRow page) throws IOException {
+        out.writeBoolean(true);
+        out.writeVarint(increment(previousPageId, page.id()));
+        out.writeVarint(page.siteId());
+        out.writeString(page.path());
+        out.writeVarint(page.code());
+        out.writeString(page.contentCodec());
+        out.writeByteArray(page.content());
+        out.writeNullableBytes(page.text());
+        out.writeNullableLong(page.simhash());
+        // 0 — не дубликат, иначе id оригинала + 1
+        out.writeVarint(page.duplicateOf() != null ? page.duplicateOf() + 1L : 0);
+        previousPageId = page.id();
+    }
+
+    public void endPages() throws IOException {
+        out.writeBoolean(false);
+    }
+
+    /**
+     * Записи индекса должны идти по возрастанию (lemma_id, page_id).
+     */
+    public void posting(SnapshotSink.PostingRow posting) throws IOException {
+        if (posting.lemmaId() != postingLemmaId) {
+            if (postingLemmaId != 0) {
+                out.writeVarint(0);
+            }
+            out.writeBoolean(true);
+            out.writeVarint(increment(postingLemmaId, posting.lemmaId()));
+            postingLemmaId = posting.lemmaId();
+            postingPageId = 0;
+        } else if (posting.pageId() < postingPageId) {
+            throw new IllegalArgumentException("Записи индекса должны идти по возрастанию page_id");
+        }
+        out.writeVarint(posting.pageId() - (long) postingPageId + 1);
+        out.writeRank(posting.rank());
+        out.writeNullableBytes(posting.positions());
+        postingPageId = posting.pageId();
+    }
+
+    public void endIndex() throws IOException {
+        if (postingLemmaId != 0) {
+            out.writeVarint(0);
+        }
+        out.writeBoolean(false);
+    }
+
+    /**
+     * Завершает кадр LZ4 и закрывает поток назначения.
+     */
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private static long increment(int previous, int id) {
+        if (id <= previous) {
+            throw new IllegalArgumentException("Id должны идти по возрастанию: " + id + " после " + previous);
+        }
+        return id - (long) previous;
+    }
+
+    private static int sharedPrefix(String a, String b) {
+        int max = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < max && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        // Не разрываем суррогатную пару: половина символа не переживёт UTF-8
+        if (i > 0 && Character.isHighSurrogate(a.charAt(i - 1))) {
+            i--;
+        }
+        return i;
+    }
+}
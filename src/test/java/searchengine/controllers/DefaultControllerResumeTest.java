@@ -0,0 +1,169 @@
+package searchengine.controllers;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import searchengine.TextProcessor;
+import searchengine.config.ContentStorageSettings;
+import searchengine.config.CrawlerSettings;
+import searchengine.config.Site;
+import searchengine.config.SitesList;
+import searchengine.services.CrawlFrontier;
+import searchengine.services.FrontierCheckpointStore;
+import searchengine.services.IndexBatchWriter;
+import searchengine.services.IndexingGuard;
+import searchengine.services.IndexingMetrics;
+import searchengine.services.NearDuplicateIndex;
+import searchengine.services.RobotsRules;
+import searchengine.services.SiteStatisticsRegistry;
+import searchengine.services.UrlDiscoveryService;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Обход сайта с контрольной точки против локального HTTP-сервера: страница
+ * считается обработанной только после того, как её ссылки поставлены в очередь.
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class DefaultControllerResumeTest {
+
+    private static final String ROOT_HTML = "<html><body><a href=\"/child\">дальше</a></body></html>";
+    private static final String CHILD_HTML = "<html><body>конец</body></html>";
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    @Mock
+    private SiteStatisticsRegistry statisticsRegistry;
+    @Mock
+    private FrontierCheckpointStore checkpointStore;
+    @Mock
+    private UrlDiscoveryService discoveryService;
+    @Mock
+    private TextProcessor textProcessor;
+    @Mock
+    private IndexBatchWriter indexBatchWriter;
+    @Mock
+    private NearDuplicateIndex nearDuplicates;
+    @Spy
+    private SitesList sitesList = new SitesList();
+    @Spy
+    private CrawlerSettings crawlerSettings = new CrawlerSettings();
+    @Spy
+    private ContentStorageSettings contentStorageSettings = new ContentStorageSettings();
+    @Spy
+    private IndexingMetrics metrics = new IndexingMetrics(new SimpleMeterRegistry());
+    @Spy
+    private IndexingGuard indexingGuard = new IndexingGuard();
+
+    @InjectMocks
+    private DefaultController controller;
+
+    private HttpServer server;
+    private String siteUrl;
+    private final Queue<String> requested = new ConcurrentLinkedQueue<>();
+    private final CountDownLatch rootServed = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            String path = exchange.getRequestURI().getPath();
+            requested.add(path);
+            byte[] body = (path.equals("/") ? ROOT_HTML : CHILD_HTML).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/html; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+            if (path.equals("/")) {
+                rootServed.countDown();
+            }
+        });
+        server.start();
+        siteUrl = "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+
+        Site site = new Site();
+        site.setUrl(siteUrl);
+        site.setName("Тестовый сайт");
+        sitesList.setSites(List.of(site));
+        crawlerSettings.setStopTimeoutMs(10000);
+
+        when(discoveryService.getRobotsRules(anyString(), anyString())).thenReturn(RobotsRules.allowAll());
+        when(jdbcTemplate.query(eq("SELECT id FROM site WHERE url = ?"), any(ResultSetExtractor.class), eq(siteUrl)))
+                .thenReturn(1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void stopDuringPolitenessDelayKeepsPagePending() throws Exception {
+        crawlerSettings.setMinDelayMs(5000);
+        crawlerSettings.setMaxDelayMs(5000);
+        CrawlFrontier frontier = CrawlFrontier.restore(siteUrl, List.of(), List.of(siteUrl));
+        when(checkpointStore.load(siteUrl)).thenReturn(Optional.of(frontier));
+
+        CompletableFuture<ResponseEntity<Map<String, Object>>> run =
+                CompletableFuture.supplyAsync(() -> controller.startIndexing(true));
+        assertTrue(rootServed.await(5, TimeUnit.SECONDS));
+        Thread.sleep(300); // ссылки главной в очереди, /child ждёт своей очереди к сайту
+
+        ResponseEntity<Map<String, Object>> stop = controller.stopIndexing();
+        assertEquals(true, stop.getBody().get("result"));
+        run.get(10, TimeUnit.SECONDS);
+
+        // Главная обработана, а /child, не дождавшаяся паузы, остаётся для продолжения
+        assertEquals(List.of(siteUrl + "child"), frontier.getPending());
+        assertFalse(requested.contains("/child"));
+        verify(checkpointStore).unregister(frontier, false);
+    }
+
+    @Test
+    void resumedCrawlMarksPagesDoneAfterLinksQueued() {
+        crawlerSettings.setMinDelayMs(0);
+        crawlerSettings.setMaxDelayMs(0);
+        CrawlFrontier frontier = CrawlFrontier.restore(siteUrl, List.of(), List.of(siteUrl));
+        when(checkpointStore.load(siteUrl)).thenReturn(Optional.of(frontier));
+
+        ResponseEntity<Map<String, Object>> response = controller.startIndexing(true);
+
+        assertEquals(true, response.getBody().get("result"));
+        assertTrue(requested.contains("/child"));
+        assertEquals(0, frontier.getPendingCount());
+        assertEquals(2, frontier.getVisitedCount());
+        verify(checkpointStore).unregister(frontier, true);
+    }
+}
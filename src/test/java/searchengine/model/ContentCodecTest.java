@@ -0,0 +1,54 @@
+package searchengine.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContentCodecTest {
+
+    private static final String HTML = "<html><body><p>Съешь же ещё этих мягких французских булок</p>"
+            .repeat(200) + "</body></html>";
+
+    @Test
+    void everyCodecRoundTrips() {
+        for (ContentCodec codec : ContentCodec.values()) {
+            assertEquals(HTML, codec.decode(codec.encode(HTML)), codec.name());
+            assertEquals("", codec.decode(codec.encode("")), codec.name());
+            assertNull(codec.encode(null));
+            assertNull(codec.decode(null));
+        }
+    }
+
+    @Test
+    void compressedCodecsShrinkRepetitiveHtml() {
+        int raw = ContentCodec.NONE.encode(HTML).length;
+        assertTrue(ContentCodec.DEFLATE.encode(HTML).length < raw / 4);
+        assertTrue(ContentCodec.LZ4.encode(HTML).length < raw / 4);
+    }
+
+    @Test
+    void truncatedDeflateFailsInsteadOfLooping() {
+        byte[] data = ContentCodec.DEFLATE.encode(HTML);
+        byte[] truncated = Arrays.copyOf(data, data.length / 2);
+        assertThrows(IllegalStateException.class, () -> ContentCodec.DEFLATE.decode(truncated));
+    }
+
+    @Test
+    void truncatedLz4Fails() {
+        byte[] data = ContentCodec.LZ4.encode(HTML);
+        byte[] truncated = Arrays.copyOf(data, data.length / 2);
+        assertThrows(IllegalStateException.class, () -> ContentCodec.LZ4.decode(truncated));
+    }
+
+    @Test
+    void corruptDataFails() {
+        for (ContentCodec codec : new ContentCodec[]{ContentCodec.DEFLATE, ContentCodec.LZ4}) {
+            byte[] data = codec.encode(HTML);
+            Arrays.fill(data, Integer.BYTES, data.length, (byte) 0xFF);
+            assertThrows(IllegalStateException.class, () -> codec.decode(data), codec.name());
+            assertThrows(IllegalStateException.class, () -> codec.decode(new byte[]{1, 2}), codec.name());
+        }
+    }
+}
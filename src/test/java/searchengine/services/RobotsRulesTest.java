@@ -0,0 +1,98 @@
+package searchengine.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RobotsRulesTest {
+
+    private static final String AGENT = "CustomSearchBot";
+
+    @Test
+    void longestMatchingRuleWins() {
+        RobotsRules rules = RobotsRules.parse("""
+                User-agent: *
+                Disallow: /private
+                Allow: /private/public
+                """, AGENT);
+        assertFalse(rules.isAllowed("/private/secret"));
+        assertTrue(rules.isAllowed("/private/public/page"));
+        assertTrue(rules.isAllowed("/other"));
+    }
+
+    @Test
+    void allowWinsOverDisallowOfEqualLength() {
+        RobotsRules rules = RobotsRules.parse("""
+                User-agent: *
+                Disallow: /page
+                Allow: /page
+                """, AGENT);
+        assertTrue(rules.isAllowed("/page"));
+    }
+
+    @Test
+    void wildcardMatchesAnySequence() {
+        RobotsRules rules = RobotsRules.parse("""
+                User-agent: *
+                Disallow: /*.pdf
+                Disallow: /catalog/*/print
+                """, AGENT);
+        assertFalse(rules.isAllowed("/docs/file.pdf"));
+        assertFalse(rules.isAllowed("/file.pdf?download=1"));
+        assertFalse(rules.isAllowed("/catalog/shoes/print"));
+        assertTrue(rules.isAllowed("/catalog/print"));
+    }
+
+    @Test
+    void dollarAnchorsPatternAtEndOfPath() {
+        RobotsRules rules = RobotsRules.parse("""
+                User-agent: *
+                Disallow: /*.php$
+                Disallow: /exact$
+                """, AGENT);
+        assertFalse(rules.isAllowed("/index.php"));
+        assertTrue(rules.isAllowed("/index.php?id=1"));
+        assertFalse(rules.isAllowed("/exact"));
+        assertTrue(rules.isAllowed("/exact/more"));
+    }
+
+    @Test
+    void specificGroupReplacesWildcardGroup() {
+        RobotsRules rules = RobotsRules.parse("""
+                User-agent: *
+                Disallow: /
+
+                User-agent: customsearchbot
+                Disallow: /admin
+                Crawl-delay: 1.5
+                """, AGENT);
+        assertTrue(rules.isAllowed("/news"));
+        assertFalse(rules.isAllowed("/admin/users"));
+        assertEquals(1500, rules.getCrawlDelayMs());
+    }
+
+    @Test
+    void emptyDisallowAndCommentsAllowEverything() {
+        RobotsRules rules = RobotsRules.parse("""
+                # комментарий
+                User-agent: *
+                Disallow:   # ничего не запрещено
+                Sitemap: https://example.com/sitemap.xml
+                """, AGENT);
+        assertTrue(rules.isAllowed("/any"));
+        assertEquals(-1, rules.getCrawlDelayMs());
+        assertEquals(List.of("https://example.com/sitemap.xml"), rules.getSitemaps());
+    }
+
+    @Test
+    void groupsForOtherAgentsAreIgnored() {
+        RobotsRules rules = RobotsRules.parse("""
+                User-agent: OtherBot
+                Disallow: /
+                """, AGENT);
+        assertTrue(rules.isAllowed("/"));
+        assertTrue(RobotsRules.allowAll().isAllowed("/anything"));
+    }
+}
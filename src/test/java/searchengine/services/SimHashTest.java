@@ -0,0 +1,57 @@
+package searchengine.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimHashTest {
+
+    private static String words(int count, String prefix) {
+        return IntStream.range(0, count).mapToObj(i -> prefix + i).collect(Collectors.joining(" "));
+    }
+
+    @Test
+    void shortTextHasNoFingerprint() {
+        assertNull(SimHash.fingerprint(null));
+        assertNull(SimHash.fingerprint(""));
+        // 17 слов дают 15 шинглов — меньше минимума в 16
+        assertNull(SimHash.fingerprint(words(17, "слово")));
+        assertNotNull(SimHash.fingerprint(words(18, "слово")));
+    }
+
+    @Test
+    void leadingPunctuationDoesNotCountAsWord() {
+        assertNull(SimHash.fingerprint("... " + words(17, "слово")));
+        assertEquals(SimHash.fingerprint(words(18, "слово")), SimHash.fingerprint("— " + words(18, "слово")));
+    }
+
+    @Test
+    void ignoresCaseAndPunctuation() {
+        String text = words(40, "Слово");
+        assertEquals(SimHash.fingerprint(text), SimHash.fingerprint(text.toUpperCase().replace(" ", ", ")));
+    }
+
+    @Test
+    void nearDuplicatesAreCloserThanDifferentTexts() {
+        // Замена одного слова меняет три шингла; на длинном тексте это несколько бит
+        String original = words(1000, "слово");
+        String edited = original.replace("слово100 ", "правка ");
+        String different = words(1000, "другое");
+
+        long a = SimHash.fingerprint(original);
+        int near = SimHash.distance(a, SimHash.fingerprint(edited));
+        int far = SimHash.distance(a, SimHash.fingerprint(different));
+        assertTrue(near <= 3, "расстояние до почти дубликата " + near);
+        assertTrue(far > 10, "расстояние до другого текста " + far);
+    }
+
+    @Test
+    void distanceCountsDifferingBits() {
+        assertEquals(0, SimHash.distance(42L, 42L));
+        assertEquals(64, SimHash.distance(0L, -1L));
+        assertEquals(2, SimHash.distance(0b1010L, 0b0000L));
+    }
+}
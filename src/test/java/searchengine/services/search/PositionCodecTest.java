@@ -0,0 +1,38 @@
+package searchengine.services.search;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PositionCodecTest {
+
+    @Test
+    void roundTripsPositions() {
+        int[] positions = {0, 3, 4, 120, 5000};
+        assertArrayEquals(positions, PositionCodec.decode(PositionCodec.encode(positions)));
+    }
+
+    @Test
+    void emptyAndMissingPositionsDecodeToEmptyArray() {
+        assertArrayEquals(new int[0], PositionCodec.decode(PositionCodec.encode(new int[0])));
+        assertArrayEquals(new int[0], PositionCodec.decode(null));
+        assertArrayEquals(new int[0], PositionCodec.decode(new byte[0]));
+    }
+
+    @Test
+    void deltasCrossVarintByteBoundaries() {
+        // Разности 127/128, 16383/16384 и максимальная — на границах одного, двух, трёх и пяти байт
+        int[] positions = {127, 255, 16638, 33022, 33022 + 2_097_151, 33022 + 2_097_151 + 2_097_152};
+        assertArrayEquals(positions, PositionCodec.decode(PositionCodec.encode(positions)));
+        assertArrayEquals(new int[]{Integer.MAX_VALUE},
+                PositionCodec.decode(PositionCodec.encode(new int[]{Integer.MAX_VALUE})));
+    }
+
+    @Test
+    void encodesEachSmallDeltaInOneByte() {
+        assertEquals(1, PositionCodec.encode(new int[0]).length);
+        assertEquals(4, PositionCodec.encode(new int[]{0, 1, 127}).length);
+        assertEquals(3, PositionCodec.encode(new int[]{128}).length);
+        assertEquals(6, PositionCodec.encode(new int[]{Integer.MAX_VALUE}).length);
+    }
+}
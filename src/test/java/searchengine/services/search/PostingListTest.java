@@ -0,0 +1,113 @@
+package searchengine.services.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PostingListTest {
+
+    @Test
+    void sortsPagesWithTheirRanksAndPositions() {
+        byte[] first = PositionCodec.encode(new int[]{1, 2});
+        byte[] second = PositionCodec.encode(new int[]{7});
+        PostingList list = PostingList.of(new int[]{9, 3}, new float[]{2f, 5f}, new byte[][]{first, second});
+
+        assertArrayEquals(new int[]{3, 9}, list.pageIds());
+        assertEquals(5f, list.rank(0));
+        assertArrayEquals(new int[]{7}, list.positions(0));
+        assertArrayEquals(new int[]{1, 2}, list.positions(list.indexOf(9)));
+        assertTrue(list.indexOf(4) < 0);
+    }
+
+    @Test
+    void listWithoutPositionsReturnsEmptyPositions() {
+        PostingList list = PostingList.of(new int[]{1}, new float[]{1f});
+        assertFalse(list.hasPositions());
+        assertArrayEquals(new int[0], list.positions(0));
+    }
+
+    @Test
+    void builderWithoutPositionsBuildsListWithoutPositions() {
+        PostingList.Builder builder = new PostingList.Builder();
+        IntStream.range(0, 40).forEach(page -> builder.add(page, 1f, null));
+        PostingList list = builder.build();
+
+        assertEquals(40, list.size());
+        assertFalse(list.hasPositions());
+        assertFalse(list.hasPositions(0));
+    }
+
+    @Test
+    void builderKeepsPositionsOfMixedRows() {
+        PostingList.Builder builder = new PostingList.Builder();
+        IntStream.range(0, 20).forEach(page -> builder.add(page, 1f, null));
+        builder.add(100, 1f, PositionCodec.encode(new int[]{4}));
+        PostingList list = builder.build();
+
+        assertTrue(list.hasPositions());
+        assertFalse(list.hasPositions(0));
+        assertTrue(list.hasPositions(list.indexOf(100)));
+        assertArrayEquals(new int[]{4}, list.positions(list.indexOf(100)));
+    }
+
+    @Test
+    void rejectsMismatchedArrays() {
+        assertThrows(IllegalArgumentException.class, () -> PostingList.of(new int[]{1, 2}, new float[]{1f}));
+    }
+
+    @Test
+    void intersectHandlesEmptyAndDisjointLists() {
+        assertArrayEquals(new int[0], PostingList.intersect(new int[0], new int[]{1, 2, 3}));
+        assertArrayEquals(new int[0], PostingList.intersect(new int[]{1, 2, 3}, new int[0]));
+        assertArrayEquals(new int[0], PostingList.intersect(new int[]{1, 3, 5}, new int[]{2, 4, 6}));
+        assertArrayEquals(new int[0], PostingList.intersect(new int[]{10, 11}, new int[]{1, 2, 3}));
+        assertArrayEquals(new int[]{2, 5}, PostingList.intersect(new int[]{1, 2, 5, 8}, new int[]{2, 3, 5}));
+    }
+
+    @Test
+    void gallopingIntersectionMatchesMerge() {
+        int[] large = IntStream.range(0, 10_000).map(i -> i * 3).toArray();
+        int[] small = {-1, 0, 4, 299, 300, 15_000, 29_997, 29_998, 40_000};
+        assertArrayEquals(new int[]{0, 300, 15_000, 29_997}, PostingList.intersect(small, large));
+        assertArrayEquals(new int[]{0, 300, 15_000, 29_997}, PostingList.intersect(large, small));
+        // Все элементы короткого списка за концом длинного
+        assertArrayEquals(new int[0], PostingList.intersect(new int[]{50_000, 60_000}, large));
+    }
+
+    @Test
+    void intersectAllStartsFromShortestList() {
+        PostingList a = list(1, 2, 3, 4, 5, 6);
+        PostingList b = list(2, 4, 6);
+        PostingList c = list(4, 6, 8);
+        assertArrayEquals(new int[]{4, 6}, PostingList.intersectAll(List.of(a, b, c)));
+        assertArrayEquals(new int[0], PostingList.intersectAll(List.of(a, list())));
+        assertArrayEquals(new int[0], PostingList.intersectAll(List.of()));
+    }
+
+    @Test
+    void intersectAllOfOneListReturnsCopy() {
+        PostingList a = list(1, 2);
+        int[] result = PostingList.intersectAll(List.of(a));
+        result[0] = 42;
+        assertEquals(1, a.pageId(0));
+    }
+
+    @Test
+    void builderCollectsRowsInAnyOrder() {
+        PostingList.Builder builder = new PostingList.Builder();
+        for (int pageId = 40; pageId > 0; pageId--) {
+            builder.add(pageId, pageId, null);
+        }
+        PostingList list = builder.build();
+        assertEquals(40, list.size());
+        assertEquals(1, list.pageId(0));
+        assertEquals(40f, list.rank(39));
+    }
+
+    private static PostingList list(int... pageIds) {
+        return PostingList.of(pageIds, new float[pageIds.length]);
+    }
+}
@@ -0,0 +1,92 @@
+package searchengine.services.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrefixIndexTest {
+
+    private static PrefixIndex index(Object... termsAndFrequencies) {
+        TreeMap<String, Integer> map = new TreeMap<>();
+        for (int i = 0; i < termsAndFrequencies.length; i += 2) {
+            map.put((String) termsAndFrequencies[i], (Integer) termsAndFrequencies[i + 1]);
+        }
+        return PrefixIndex.of(map);
+    }
+
+    @Test
+    void prefixRangeCoversAllMatchingTerms() {
+        PrefixIndex index = index("дом", 3, "дома", 1, "домик", 2, "дорога", 5, "кот", 4);
+        int from = index.rangeStart("дом");
+        int to = index.rangeEnd("дом");
+        assertEquals(0, from);
+        assertEquals(3, to);
+        assertEquals("домик", index.term(2));
+    }
+
+    @Test
+    void rangeEndStopsBeforeNextPrefix() {
+        PrefixIndex index = index("до", 1, "дом", 1, "дорога", 1, "дп", 1);
+        assertEquals(0, index.rangeStart("до"));
+        assertEquals(3, index.rangeEnd("до"));
+        assertEquals(index.size(), index.rangeEnd("дп"));
+    }
+
+    @Test
+    void missingPrefixGivesEmptyRange() {
+        PrefixIndex index = index("кот", 1, "кошка", 2);
+        assertEquals(index.rangeStart("лес"), index.rangeEnd("лес"));
+        assertEquals(index.rangeStart("аа"), index.rangeEnd("аа"));
+        assertEquals(0, PrefixIndex.empty().rangeEnd("кот"));
+    }
+
+    @Test
+    void visitsRangeByDescendingFrequency() {
+        PrefixIndex index = index("дом", 3, "дома", 7, "домик", 3, "домна", 9, "дорога", 5, "кот", 40);
+        List<String> visited = new ArrayList<>();
+        index.visitByFrequency(index.rangeStart("дом"), index.rangeEnd("дом"), i -> visited.add(index.term(i)));
+        // При равной частоте раньше идёт лемма с меньшей позицией
+        assertEquals(List.of("домна", "дома", "дом", "домик"), visited);
+    }
+
+    @Test
+    void visitStopsWhenVisitorDeclines() {
+        TreeMap<String, Integer> map = new TreeMap<>();
+        for (int i = 0; i < 1000; i++) {
+            map.put("лемма" + i, i % 97);
+        }
+        PrefixIndex index = PrefixIndex.of(map);
+        List<Integer> frequencies = new ArrayList<>();
+        index.visitByFrequency(0, index.size(), i -> {
+            frequencies.add(index.frequency(i));
+            return frequencies.size() < 25;
+        });
+        assertEquals(25, frequencies.size());
+        List<Integer> expected = map.values().stream().sorted(Comparator.reverseOrder()).limit(25).toList();
+        assertEquals(expected, frequencies);
+    }
+
+    @Test
+    void mergeAddsFrequenciesAndDropsZeroes() {
+        PrefixIndex index = index("дом", 3, "кот", 2);
+        TreeMap<String, Integer> delta = new TreeMap<>();
+        delta.put("дом", 2);
+        delta.put("кот", -2);
+        delta.put("лес", 1);
+        delta.put("аист", 0);
+
+        PrefixIndex merged = index.merge(delta);
+        assertEquals(2, merged.size());
+        assertEquals(5, merged.frequency(merged.indexOf("дом")));
+        assertTrue(merged.indexOf("кот") < 0);
+        assertEquals(1, merged.frequency(merged.indexOf("лес")));
+        assertTrue(merged.indexOf("аист") < 0);
+        // Исходный индекс не меняется
+        assertEquals(2, index.frequency(index.indexOf("кот")));
+    }
+}
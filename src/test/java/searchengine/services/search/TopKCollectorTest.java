@@ -0,0 +1,49 @@
+package searchengine.services.search;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TopKCollectorTest {
+
+    @Test
+    void keepsHighestScoresInDescendingOrder() {
+        TopKCollector collector = new TopKCollector(3);
+        float[] scores = {5f, 1f, 9f, 3f, 7f, 2f};
+        for (int i = 0; i < scores.length; i++) {
+            collector.collect(i, scores[i]);
+        }
+        TopKCollector.ScoredPage[] top = collector.results();
+        assertEquals(3, top.length);
+        assertEquals(new TopKCollector.ScoredPage(2, 9f), top[0]);
+        assertEquals(new TopKCollector.ScoredPage(4, 7f), top[1]);
+        assertEquals(new TopKCollector.ScoredPage(0, 5f), top[2]);
+        assertEquals(5f, collector.threshold());
+    }
+
+    @Test
+    void tiesAreOrderedByPageId() {
+        TopKCollector collector = new TopKCollector(5);
+        collector.collect(7, 1f);
+        collector.collect(3, 1f);
+        collector.collect(5, 2f);
+        TopKCollector.ScoredPage[] top = collector.results();
+        assertEquals(5, top[0].pageId());
+        assertEquals(3, top[1].pageId());
+        assertEquals(7, top[2].pageId());
+    }
+
+    @Test
+    void thresholdIsOpenUntilFull() {
+        TopKCollector collector = new TopKCollector(2);
+        collector.collect(1, 4f);
+        assertEquals(Float.NEGATIVE_INFINITY, collector.threshold());
+        assertEquals(1, collector.size());
+        assertEquals(0, new TopKCollector(1).results().length);
+    }
+
+    @Test
+    void rejectsNonPositiveK() {
+        assertThrows(IllegalArgumentException.class, () -> new TopKCollector(0));
+    }
+}
@@ -0,0 +1,232 @@
+package searchengine.services.snapshot;
+
+import org.junit.jupiter.api.Test;
+import searchengine.services.search.PositionCodec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Снимок, записанный {@link SnapshotWriter}, читается {@link SnapshotReader}
+ * без потерь, а испорченный отвергается до загрузки в базу.
+ */
+class SnapshotFormatTest {
+
+    // Общие префиксы соседних лемм, включая пару, которую нельзя резать посреди суррогатной пары
+    private static final List<String> LEMMAS = List.of("дом", "домашний", "домик", "кот", "😀", "😁");
+    private static final byte[] POSITIONS = PositionCodec.encode(new int[]{0, 7, 130});
+
+    @Test
+    void roundTripsAllSections() throws IOException {
+        Collected collected = new Collected();
+        long createdAt = SnapshotReader.read(new ByteArrayInputStream(snapshot()), collected);
+
+        assertEquals(1_700_000_000_000L, createdAt);
+        assertEquals(List.of(
+                new SnapshotSink.SiteRow(2, "INDEXED", 1_700_000_000_000L, null, "https://a.ru", "А", 3, 6),
+                new SnapshotSink.SiteRow(5, "FAILED", null, "Ошибка", "https://b.ru", "Б", 0, 0)), collected.sites);
+
+        List<String> lemmas = collected.lemmas.stream().map(SnapshotSink.LemmaRow::lemma).toList();
+        assertEquals(LEMMAS, lemmas);
+        // Разности id с пропусками восстанавливаются в исходные id
+        assertEquals(List.of(3, 7, 8, 20, 21, 300),
+                collected.lemmas.stream().map(SnapshotSink.LemmaRow::id).toList());
+        assertEquals(new SnapshotSink.LemmaRow(300, 2, "😁", 6), collected.lemmas.get(5));
+
+        assertEquals(3, collected.pages.size());
+        SnapshotSink.PageRow original = collected.pages.get(0);
+        assertEquals(5, original.id());
+        assertEquals("/", original.path());
+        assertEquals("LZ4", original.contentCodec());
+        assertArrayEquals(new byte[]{1, 2, 3}, original.content());
+        assertArrayEquals("текст".getBytes(StandardCharsets.UTF_8), original.text());
+        assertEquals(Long.valueOf(-42), original.simhash());
+        assertNull(original.duplicateOf());
+        SnapshotSink.PageRow duplicate = collected.pages.get(2);
+        assertEquals(1000, duplicate.id());
+        assertEquals(404, duplicate.code());
+        assertArrayEquals(new byte[0], duplicate.content());
+        assertNull(duplicate.text());
+        assertNull(duplicate.simhash());
+        assertEquals(Integer.valueOf(5), duplicate.duplicateOf());
+
+        assertEquals(4, collected.postings.size());
+        assertPosting(collected.postings.get(0), 3, 5, 2f, POSITIONS);
+        // Дробный rank пишется как float после маркера 0
+        assertPosting(collected.postings.get(1), 3, 1000, 0.75f, null);
+        assertPosting(collected.postings.get(2), 8, 9, 0f, null);
+        assertPosting(collected.postings.get(3), 20, 5, 1234.5f, POSITIONS);
+    }
+
+    @Test
+    void emptySnapshotRoundTrips() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (SnapshotWriter writer = new SnapshotWriter(bytes, 1)) {
+            writer.endSites();
+            writer.dictionary(new TreeSet<>());
+            writer.endLemmas();
+            writer.endPages();
+            writer.endIndex();
+        }
+        Collected collected = new Collected();
+        assertEquals(1, SnapshotReader.read(new ByteArrayInputStream(bytes.toByteArray()), collected));
+        assertTrue(collected.sites.isEmpty() && collected.lemmas.isEmpty() && collected.postings.isEmpty());
+    }
+
+    @Test
+    void rejectsTruncatedSnapshot() throws IOException {
+        byte[] snapshot = snapshot();
+        byte[] truncated = Arrays.copyOf(snapshot, snapshot.length / 2);
+        assertThrows(IOException.class, () -> SnapshotReader.read(new ByteArrayInputStream(truncated), new SnapshotSink() {
+        }));
+    }
+
+    @Test
+    void rejectsStringLongerThanColumn() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (SnapshotWriter writer = new SnapshotWriter(bytes, 1)) {
+            writer.site(new SnapshotSink.SiteRow(1, "INDEXED", null, null,
+                    "https://a.ru/" + "x".repeat(SnapshotReader.MAX_VARCHAR), "А", 0, 0));
+        }
+        IOException e = assertThrows(IOException.class,
+                () -> SnapshotReader.read(new ByteArrayInputStream(bytes.toByteArray()), new SnapshotSink() {
+                }));
+        assertTrue(e.getMessage().contains("больше допустимой"), e.getMessage());
+    }
+
+    @Test
+    void rejectsPostingForMissingPage() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (SnapshotWriter writer = new SnapshotWriter(bytes, 1)) {
+            writer.site(new SnapshotSink.SiteRow(1, "INDEXED", null, null, "https://a.ru", "А", 0, 1));
+            writer.endSites();
+            writer.dictionary(new TreeSet<>(List.of("дом")));
+            writer.lemma(new SnapshotSink.LemmaRow(1, 1, "дом", 1));
+            writer.endLemmas();
+            writer.endPages();
+            writer.posting(new SnapshotSink.PostingRow(1, 77, 1f, null));
+            writer.endIndex();
+        }
+        IOException e = assertThrows(IOException.class,
+                () -> SnapshotReader.read(new ByteArrayInputStream(bytes.toByteArray()), new SnapshotSink() {
+                }));
+        assertTrue(e.getMessage().contains("нет страницы 77"), e.getMessage());
+    }
+
+    @Test
+    void rejectsPostingLinkingDifferentSites() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (SnapshotWriter writer = new SnapshotWriter(bytes, 1)) {
+            writer.site(new SnapshotSink.SiteRow(1, "INDEXED", null, null, "https://a.ru", "А", 0, 1));
+            writer.site(new SnapshotSink.SiteRow(2, "INDEXED", null, null, "https://b.ru", "Б", 1, 0));
+            writer.endSites();
+            writer.dictionary(new TreeSet<>(List.of("дом")));
+            writer.lemma(new SnapshotSink.LemmaRow(1, 1, "дом", 1));
+            writer.endLemmas();
+            writer.page(new SnapshotSink.PageRow(4, 2, "/", 200, "NONE", new byte[0], null, null, null));
+            writer.endPages();
+            writer.posting(new SnapshotSink.PostingRow(1, 4, 1f, null));
+            writer.endIndex();
+        }
+        IOException e = assertThrows(IOException.class,
+                () -> SnapshotReader.read(new ByteArrayInputStream(bytes.toByteArray()), new SnapshotSink() {
+                }));
+        assertTrue(e.getMessage().contains("разным сайтам"), e.getMessage());
+    }
+
+    @Test
+    void rejectsDuplicateOfMissingPage() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (SnapshotWriter writer = new SnapshotWriter(bytes, 1)) {
+            writer.site(new SnapshotSink.SiteRow(1, "INDEXED", null, null, "https://a.ru", "А", 1, 0));
+            writer.endSites();
+            writer.dictionary(new TreeSet<>());
+            writer.endLemmas();
+            writer.page(new SnapshotSink.PageRow(4, 1, "/", 200, "NONE", new byte[0], null, null, 12));
+            writer.endPages();
+            writer.endIndex();
+        }
+        IOException e = assertThrows(IOException.class,
+                () -> SnapshotReader.read(new ByteArrayInputStream(bytes.toByteArray()), new SnapshotSink() {
+                }));
+        assertTrue(e.getMessage().contains("нет страницы 12"), e.getMessage());
+    }
+
+    @Test
+    void readsLengthOnlyUpToLimit() {
+        // Префикс длины 2^31 - 1 без данных: отвергается до выделения массива
+        byte[] prefix = {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07};
+        SnapshotInput in = new SnapshotInput(new ByteArrayInputStream(prefix));
+        assertThrows(IOException.class, () -> in.readByteArray(SnapshotReader.MAX_MEDIUMBLOB));
+    }
+
+    private static byte[] snapshot() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (SnapshotWriter writer = new SnapshotWriter(bytes, 1_700_000_000_000L)) {
+            writer.site(new SnapshotSink.SiteRow(2, "INDEXED", 1_700_000_000_000L, null, "https://a.ru", "А", 3, 6));
+            writer.site(new SnapshotSink.SiteRow(5, "FAILED", null, "Ошибка", "https://b.ru", "Б", 0, 0));
+            writer.endSites();
+
+            writer.dictionary(new TreeSet<>(LEMMAS));
+            int[] ids = {3, 7, 8, 20, 21, 300};
+            for (int i = 0; i < ids.length; i++) {
+                writer.lemma(new SnapshotSink.LemmaRow(ids[i], 2, LEMMAS.get(i), i + 1));
+            }
+            writer.endLemmas();
+
+            writer.page(new SnapshotSink.PageRow(5, 2, "/", 200, "LZ4", new byte[]{1, 2, 3}, "текст".getBytes(StandardCharsets.UTF_8), -42L, null));
+            writer.page(new SnapshotSink.PageRow(9, 2, "/a", 200, "NONE", new byte[]{4}, null, 0L, null));
+            writer.page(new SnapshotSink.PageRow(1000, 2, "/b", 404, "NONE", new byte[0], null, null, 5));
+            writer.endPages();
+
+            writer.posting(new SnapshotSink.PostingRow(3, 5, 2f, POSITIONS));
+            writer.posting(new SnapshotSink.PostingRow(3, 1000, 0.75f, null));
+            writer.posting(new SnapshotSink.PostingRow(8, 9, 0f, null));
+            writer.posting(new SnapshotSink.PostingRow(20, 5, 1234.5f, POSITIONS));
+            writer.endIndex();
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void assertPosting(SnapshotSink.PostingRow posting, int lemmaId, int pageId, float rank, byte[] positions) {
+        assertEquals(lemmaId, posting.lemmaId());
+        assertEquals(pageId, posting.pageId());
+        assertEquals(rank, posting.rank());
+        assertArrayEquals(positions, posting.positions());
+    }
+
+    private static class Collected implements SnapshotSink {
+        final List<SiteRow> sites = new ArrayList<>();
+        final List<LemmaRow> lemmas = new ArrayList<>();
+        final List<PageRow> pages = new ArrayList<>();
+        final List<PostingRow> postings = new ArrayList<>();
+
+        @Override
+        public void site(SiteRow site) {
+            sites.add(site);
+        }
+
+        @Override
+        public void lemma(LemmaRow lemma) {
+            lemmas.add(lemma);
+        }
+
+        @Override
+        public void page(PageRow page) {
+            pages.add(page);
+        }
+
+        @Override
+        public void posting(PostingRow posting) {
+            postings.add(posting);
+        }
+    }
+}